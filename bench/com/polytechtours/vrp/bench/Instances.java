@@ -0,0 +1,82 @@
+package com.polytechtours.vrp.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.polytechtours.vrp.data.ArrayDistanceMatrix;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.InstanceGenerator;
+import com.polytechtours.vrp.data.VRPREPInstanceReader;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Loads the instances used by the benchmarks. <code>CMTxx</code> names the bundled instance
+ * <code>data/CMT/CMTxx.xml</code> (the directory can be changed with the <code>vrp.data</code> system property) and
+ * <code>Un</code> a synthetic instance with <code>n</code> customers uniformly distributed on a 1000x1000 square and a
+ * capacity of 200, written to a temporary VRP-REP file by {@link InstanceGenerator} so that parsing can be benchmarked
+ * on it.
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 4, 2018
+ *
+ */
+final class Instances {
+
+	/**
+	 * The seed of the synthetic instances
+	 */
+	private static final long SEED = 42;
+
+	/**
+	 * An instance
+	 */
+	static final class Instance {
+		final String path;
+		final double[][] coordinates;
+		final IDistanceMatrix distances;
+		final IDemands demands;
+		final double Q;
+
+		private Instance(String path, double[][] coordinates, IDemands demands, double Q){
+			this.path = path;
+			this.coordinates = coordinates;
+			this.distances = new ArrayDistanceMatrix(EuclideanCalculator.calc(coordinates));
+			this.demands = demands;
+			this.Q = Q;
+		}
+	}
+
+	private Instances(){
+	}
+
+	/**
+	 * @param name the name of the instance
+	 * @return the instance
+	 */
+	static Instance load(String name){
+		if(name.startsWith("U")){
+			int n = Integer.parseInt(name.substring(1));
+			try{
+				File file = File.createTempFile(name, ".xml");
+				file.deleteOnExit();
+				InstanceGenerator generator = new InstanceGenerator(n, SEED);
+				generator.setCapacity(200);
+				generator.write(file.getPath());
+				try(VRPREPStreamReader reader = new VRPREPStreamReader(file.getPath())){
+					return new Instance(file.getPath(), reader.getCoordinates(), reader.getDemands(), reader.getCapacity("0"));
+				}
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+		String path = System.getProperty("vrp.data", "data/CMT") + "/" + name + ".xml";
+		try(VRPREPInstanceReader reader = new VRPREPInstanceReader(path)){
+			return new Instance(path, reader.getCoordinates(), reader.getDemands(), reader.getCapacity("0"));
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.polytechtours.vrp.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.ISolution;
+import com.polytechtours.vrp.cw.Saving;
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPInstanceReader;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Times each stage of the solver separately and end to end: parsing, distance matrix, savings generation (object list
+ * and {@link SavingsStore}), merge loop of {@link ClarkeWright}, and the whole pipeline from the XML file to the
+ * solution. Every stage but the one measured is prepared in the setup.
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 4, 2018
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+	@Param({"CMT01", "CMT02", "CMT03", "CMT04", "CMT05", "CMT06", "CMT07", "CMT08", "CMT09", "CMT10", "CMT11", "CMT12", "CMT13", "CMT14", "U1000", "U2000"})
+	public String instance;
+
+	private Instances.Instance data;
+
+	private SavingsStore savings;
+
+	@Setup
+	public void setup(){
+		data = Instances.load(instance);
+		savings = SavingsStore.calc(data.distances);
+	}
+
+	@Benchmark
+	public Object parseDOM(){
+		try(VRPREPInstanceReader reader = new VRPREPInstanceReader(data.path)){
+			return new Object[]{reader.getCoordinates(), reader.getDemands(), reader.getCapacity("0")};
+		}
+	}
+
+	@Benchmark
+	public Object parseStAX(){
+		try(VRPREPStreamReader reader = new VRPREPStreamReader(data.path)){
+			return new Object[]{reader.getCoordinates(), reader.getDemands(), reader.getCapacity("0")};
+		}
+	}
+
+	@Benchmark
+	public double[][] euclidean(){
+		return EuclideanCalculator.calc(data.coordinates);
+	}
+
+	@Benchmark
+	public ArrayList<Saving> savingObjects(){
+		return Saving.calc(data.distances);
+	}
+
+	@Benchmark
+	public SavingsStore savingsStore(){
+		return SavingsStore.calc(data.distances);
+	}
+
+	@Benchmark
+	public ISolution merge(){
+		return new ClarkeWright(data.distances, data.demands, data.Q, savings).run();
+	}
+
+	@Benchmark
+	public ISolution endToEnd(){
+		try(VRPREPStreamReader reader = new VRPREPStreamReader(data.path)){
+			IDistanceMatrix distances = reader.getDistanceMatrix();
+			IDemands demands = reader.getDemands();
+			return new ClarkeWright(distances, demands, reader.getCapacity("0"), SavingsStore.calc(distances)).run();
+		}
+	}
+
+}
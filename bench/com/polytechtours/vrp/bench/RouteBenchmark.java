@@ -0,0 +1,117 @@
+package com.polytechtours.vrp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.polytechtours.vrp.cw.ArrayRoute;
+import com.polytechtours.vrp.cw.IRoute;
+import com.polytechtours.vrp.cw.IntArrayRoute;
+import com.polytechtours.vrp.cw.LinkedRoute;
+
+/**
+ * Compares the {@link IRoute} implementations on the operations used by the solver: positional reads, membership,
+ * cloning, reversal, insertion/removal in the middle of the route and full traversal.
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 25, 2018
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+
+	@Param({"ArrayRoute", "IntArrayRoute", "LinkedRoute"})
+	public String implementation;
+
+	@Param({"10", "100", "1000"})
+	public int size;
+
+	private IRoute route;
+
+	@Setup
+	public void setup(){
+		route = create(implementation);
+		for(int i=0; i<size; i++)
+			route.add(i);
+	}
+
+	/**
+	 * @param implementation the simple name of an {@link IRoute} implementation
+	 * @return a new empty route
+	 */
+	static IRoute create(String implementation){
+		switch(implementation){
+		case "ArrayRoute":
+			return new ArrayRoute();
+		case "IntArrayRoute":
+			return new IntArrayRoute();
+		case "LinkedRoute":
+			return new LinkedRoute();
+		default:
+			throw new IllegalArgumentException("unknown route implementation " + implementation);
+		}
+	}
+
+	@Benchmark
+	public int get(){
+		int sum = 0;
+		for(int i=0; i<route.size(); i++)
+			sum += route.get(i);
+		return sum;
+	}
+
+	@Benchmark
+	public void forEach(Blackhole bh){
+		route.forEach(bh::consume);
+	}
+
+	@Benchmark
+	public boolean contains(){
+		return route.contains(size - 1);
+	}
+
+	@Benchmark
+	public int endpoints(){
+		return route.get(1) + route.get(route.size() - 2);
+	}
+
+	@Benchmark
+	public IRoute cloneRoute(){
+		return route.clone();
+	}
+
+	@Benchmark
+	public IRoute reverse(){
+		route.reverse();
+		return route;
+	}
+
+	@Benchmark
+	public int insertRemove(){
+		route.insert(-1, size / 2);
+		return route.remove(size / 2);
+	}
+
+	@Benchmark
+	public Object getRoute(){
+		return route.getRoute();
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.polytechtours.vrp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.IRoute;
+import com.polytechtours.vrp.cw.ISolution;
+import com.polytechtours.vrp.cw.VRPSolution;
+
+/**
+ * Times the {@link VRPSolution} operations used by the solver and by local search on the Clarke-Wright solution of an
+ * instance: node lookups, read access to the routes, cloning, and route-level modifications (each modification is
+ * undone in the same invocation, so the solution is the same for every invocation).
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 4, 2018
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolutionBenchmark {
+
+	@Param({"CMT05", "U1000"})
+	public String instance;
+
+	private VRPSolution solution;
+
+	private int n;
+
+	@Setup
+	public void setup(){
+		Instances.Instance data = Instances.load(instance);
+		solution = (VRPSolution) new ClarkeWright(data.distances, data.demands, data.Q).run();
+		n = data.distances.size();
+	}
+
+	@Benchmark
+	public int routeOfEveryNode(){
+		int sum = 0;
+		for(int i=1; i<n; i++)
+			sum += solution.getRouteIdByNodeId(i);
+		return sum;
+	}
+
+	@Benchmark
+	public boolean containsNode(){
+		return solution.containsNode(n - 1);
+	}
+
+	@Benchmark
+	public void traverseViews(Blackhole bh){
+		for(IRoute route : solution.getRouteViews())
+			route.forEach(bh::consume);
+	}
+
+	@Benchmark
+	public Object copyRoutes(){
+		return solution.getRoutes();
+	}
+
+	@Benchmark
+	public ISolution cloneSolution(){
+		return solution.clone();
+	}
+
+	@Benchmark
+	public VRPSolution removeInsertRoute(){
+		IRoute route = solution.remove(0);
+		solution.insertRoute(route, 0);
+		return solution;
+	}
+
+	@Benchmark
+	public VRPSolution reverseRoute(){
+		solution.reverse(solution.size() / 2);
+		return solution;
+	}
+
+	@Benchmark
+	public VRPSolution removeInsertNode(){
+		int r = solution.size() / 2;
+		int node = solution.remove(r, 1);
+		solution.insert(node, r, 1);
+		return solution;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A source of savings that serves a sorted {@link SavingsStore} in a biased-randomised order: the next saving is
+ * drawn among the savings not served yet, the k-th largest with a geometric probability &beta;(1-&beta;)<sup>k</sup>
+ * (an index past the end wraps around).</br>
+ * The store is only read, so many sources can share it. The draws only need the savings not yet served that rank
+ * before the drawn one; they are kept in a small window pulled from the store on demand, whose size is of the order of
+ * the largest index drawn (about (1-&beta;)/&beta; on average).
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class BiasedSavings implements ISavingsSource {
+
+	/**
+	 * the sorted savings
+	 */
+	private final SavingsStore savings;
+	/**
+	 * the random generator of the draws
+	 */
+	private final Random random;
+	/**
+	 * log(1-&beta;), 0 if every draw takes the largest saving
+	 */
+	private final double logFailure;
+	/**
+	 * positions in the store of the savings of the window, in the order of the store
+	 */
+	private int[] window = new int[16];
+	/**
+	 * number of savings in the window
+	 */
+	private int size;
+	/**
+	 * position in the store of the next saving pulled into the window
+	 */
+	private int pulled;
+	/**
+	 * position in the store of the current saving
+	 */
+	private int current = -1;
+
+	/**
+	 * @param savings the sorted savings, shared and not modified
+	 * @param beta the parameter &beta; of the geometric distribution, in (0, 1]; the larger, the closer to the order of
+	 * the store (1 serves the store in order)
+	 * @param random the random generator of the draws
+	 */
+	public BiasedSavings(SavingsStore savings, double beta, Random random){
+		if(!(beta > 0 && beta <= 1))
+			throw new IllegalArgumentException("argument beta must be in (0, 1] (passed " + beta + ")");
+		this.savings = savings;
+		this.random = random;
+		this.logFailure = beta < 1 ? Math.log(1 - beta) : 0;
+	}
+
+	@Override
+	public boolean next(){
+		int remaining = size + savings.size() - pulled;
+		if(remaining == 0){
+			current = -1;
+			return false;
+		}
+		int k = draw();
+		if(k >= remaining)
+			k %= remaining;
+		// pull the savings ranking before the drawn one
+		while(size <= k){
+			if(size == window.length)
+				window = Arrays.copyOf(window, size * 2);
+			window[size++] = pulled++;
+		}
+		current = window[k];
+		System.arraycopy(window, k + 1, window, k, size - k - 1);
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return a geometrically distributed index
+	 */
+	private int draw(){
+		if(logFailure == 0)
+			return 0;
+		double k = Math.log(1 - random.nextDouble()) / logFailure;
+		return k < Integer.MAX_VALUE ? (int) k : Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int getSourceId(){
+		return savings.getSourceId(current);
+	}
+
+	@Override
+	public int getTargetId(){
+		return savings.getTargetId(current);
+	}
+
+	@Override
+	public float getSaving(){
+		return savings.getSaving(current);
+	}
+
+	@Override
+	public int size(){
+		return savings.size();
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.polytechtours.vrp.cw;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import com.polytechtours.vrp.data.IDemands;
 import com.polytechtours.vrp.data.IDistanceMatrix;
@@ -27,6 +28,10 @@ import com.polytechtours.vrp.data.IDistanceMatrix;
  *
  */
 public class ClarkeWright implements IOptimizationAlgorithm{
+	/**
+	 * relative tolerance used when cross-checking the incremental costs in debug mode
+	 */
+	private static final double TOLERANCE = 1e-9;
 	/**
 	 * matrix of distances
 	 */
@@ -42,11 +47,44 @@ public class ClarkeWright implements IOptimizationAlgorithm{
 	/**
 	 * list of savings
 	 */
-	private ArrayList<Saving> savings;
+	private SavingsStore savings;
 	/**
 	 * solution found by the algorithm
 	 */
 	VRPSolution solution;
+	/**
+	 * if true, the incrementally maintained route costs and objective are cross-checked against a full recomputation after each saving
+	 */
+	private boolean debug = false;
+	/**
+	 * source of savings consumed by {@link #run()} instead of the savings list, if any
+	 */
+	private ISavingsSource source;
+	/**
+	 * number of savings processed by the last call to {@link #run()}
+	 */
+	private int consumed;
+	/**
+	 * listener notified of the events of {@link #run()}, if any
+	 */
+	private ISolverListener listener;
+	/**
+	 * direction of the last join attempted for the saving under examination, -1 if none
+	 */
+	private int attempt;
+	/**
+	 * min-heap of the loads of the routes and of the customers not yet in a route, see {@link #mergePossible()}: the
+	 * load of each entry
+	 */
+	private double[] loads = new double[0];
+	/**
+	 * a customer of the route (or the customer) of each entry of the heap of loads
+	 */
+	private int[] owners = new int[0];
+	/**
+	 * number of entries of the heap of loads
+	 */
+	private int heapSize;
 	/**
 	 * constructor with matrix of distances, demands and the capacity
 	 * @param distances
@@ -57,7 +95,54 @@ public class ClarkeWright implements IOptimizationAlgorithm{
 		this.distances = distances;
 		this.demands = demands;
 		this.Q = Q;
-		this.savings = Saving.calc(distances);
+		this.savings = SavingsStore.calc(distances);
+		this.solution = new VRPSolution();
+	}
+	
+	/**
+	 * constructor with matrix of distances, demands, the capacity and a precomputed savings list (e.g., a granular list
+	 * built by {@link SavingsStore#calc(IDistanceMatrix, int[][])})
+	 * @param distances
+	 * @param demands
+	 * @param Q
+	 * @param savings
+	 */
+	public ClarkeWright(IDistanceMatrix distances, IDemands demands, double Q, SavingsStore savings){
+		this.distances = distances;
+		this.demands = demands;
+		this.Q = Q;
+		this.savings = savings;
+		this.solution = new VRPSolution();
+	}
+	
+	/**
+	 * constructor with matrix of distances, demands and the capacity. The savings are taken from the given source, which
+	 * is consumed by {@link #run()} (e.g., a {@link LazySavings}).
+	 * @param distances
+	 * @param demands
+	 * @param Q
+	 * @param source
+	 */
+	public ClarkeWright(IDistanceMatrix distances, IDemands demands, double Q, ISavingsSource source){
+		this.distances = distances;
+		this.demands = demands;
+		this.Q = Q;
+		this.source = source;
+		this.solution = new VRPSolution();
+	}
+	
+	/**
+	 * constructor with matrix of distances, demands and the capacity. The savings are computed in parallel on the given pool.
+	 * @param distances
+	 * @param demands
+	 * @param Q
+	 * @param pool
+	 */
+	public ClarkeWright(IDistanceMatrix distances, IDemands demands, double Q, ForkJoinPool pool){
+		this.distances = distances;
+		this.demands = demands;
+		this.Q = Q;
+		this.savings = SavingsStore.calc(distances, pool);
 		this.solution = new VRPSolution();
 	}
 	
@@ -96,137 +181,361 @@ public class ClarkeWright implements IOptimizationAlgorithm{
 		Q = q;
 	}
 
-	public ArrayList<Saving> getSavings() {
+	public SavingsStore getSavings() {
 		return savings;
 	}
 
-	public void setSavings(ArrayList<Saving> savings) {
+	public void setSavings(SavingsStore savings) {
 		this.savings = savings;
 	}
 
+	/**
+	 * @return the number of savings processed by the last call to {@link #run()}. The run stops processing the savings
+	 * as soon as no further merge is possible.
+	 */
+	public int getConsumed() {
+		return consumed;
+	}
+
+	public ISolverListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Registers the listener notified of the phases, savings and merges of {@link #run()} (e.g., a {@link SolverMetrics}).
+	 * Without a listener, the run only pays a null check per saving.
+	 * @param listener the listener, or null to remove it
+	 */
+	public void setListener(ISolverListener listener) {
+		this.listener = listener;
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	/**
+	 * Enables or disables the debug mode. In debug mode the route costs and the objective function maintained
+	 * incrementally by {@link #run()} are verified against a full recomputation after each saving, which makes the
+	 * algorithm run in O(n<sup>3</sup>).
+	 * @param debug
+	 */
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
 	@Override
 	public ISolution run() {
 		
-		while(savings.size() > 0){// if not all the elements of saving list have been evaluated
+		//the objective is maintained incrementally from now on
+		solution.setOF(evaluate());
+		
+		int routes = distances.size() - 1;
+		if(listener != null){
+			listener.runStarted(routes);
+			if(source == null){
+				listener.phaseEnded(ISolverListener.Phase.GENERATION, savings.getGenerationTime());
+				listener.phaseEnded(ISolverListener.Phase.SORT, savings.getSortTime());
+			}
+		}
+		long start = System.nanoTime();
+		
+		ISavingsSource cursor = source != null ? source : savings.cursor();
+		consumed = 0;
+		initLoads();
+		boolean open = mergePossible();
+		while(open && cursor.next()){// if not all the elements of saving list have been evaluated and a merge is still possible
 			
-			//get the first top saving in the list
-			Saving saving = savings.get(0);
-			int sourceId = saving.getSourceId();
-			int targetId = saving.getTargetId();
+			//get the next top saving in the list
+			int sourceId = cursor.getSourceId();
+			int targetId = cursor.getTargetId();
+			consumed++;
+			boolean merged = false;
+			attempt = -1;
+			if(listener != null){
+				listener.savingExamined(sourceId, targetId);
+			}
 			
 			// if no tours contain the current two nodes
 			if(!solution.containsNode(sourceId) && !solution.containsNode(targetId)){
 				
 				//create a D->i->D route in the solution
-				VRPRoute route1 = new VRPRoute();
-				route1.add(0);
-				route1.add(sourceId);
-				route1.add(0);
-				route1.setLoad(demands.getDemand(sourceId));
-				solution.addRoute(route1);
+				createRoute(sourceId);
 				int idSource = solution.getRouteIdByNodeId(sourceId);
 				
 				//create a D->j->D route in the solution
-				VRPRoute route2 = new VRPRoute();
-				route2.add(0);
-				route2.add(targetId);
-				route2.add(0);
-				route2.setLoad(demands.getDemand(targetId));
-				solution.addRoute(route2);
+				createRoute(targetId);
 				int idTarget = solution.getRouteIdByNodeId(targetId);
 				
 				//to join these two route to one if possible
-				join(idSource, idTarget, 1);
+				merged = join(idSource, idTarget, 1);
 			}
 			// if one node has been added in one route while the other not
 			else if(solution.containsNode(sourceId) && !solution.containsNode(targetId)){
 				
 				//create a D->i->D route for the non-contained node
-				VRPRoute routeT = new VRPRoute();
-				routeT.add(0);
-				routeT.add(targetId);
-				routeT.add(0);
-				routeT.setLoad(demands.getDemand(targetId));
-				solution.addRoute(routeT);
+				createRoute(targetId);
 				
 				//get the route which contains the node in this route
-				VRPRoute routeS = (VRPRoute) solution.getRoute(solution.getRouteIdByNodeId(sourceId));
+				int routeIdS = solution.getRouteIdByNodeId(sourceId);
 				//if this node is the first one to visit
-				if(routeS.positionOf(sourceId) == 1){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 1);
+				if(isFirst(routeIdS, sourceId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 1);
 				}
 				//if this node is the last one to visit
-				else if(routeS.positionOf(sourceId) == routeS.size() - 2){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 3);
+				else if(isLast(routeIdS, sourceId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 3);
 				}
 			}
 			// if one node has been added in one route while the other not
 			else if(!solution.containsNode(sourceId) && solution.containsNode(targetId)){
 				
 				//create a D->i->D route in the solution
-				VRPRoute routeS = new VRPRoute();
-				routeS.add(0);
-				routeS.add(sourceId);
-				routeS.add(0);
-				routeS.setLoad(demands.getDemand(sourceId));
-				solution.addRoute(routeS);
+				createRoute(sourceId);
 				
 				//get the route which contains the node in this route
-				VRPRoute routeT = (VRPRoute) solution.getRoute(solution.getRouteIdByNodeId(targetId));
+				int routeIdT = solution.getRouteIdByNodeId(targetId);
 				//if this node is the first one to visit
-				if(routeT.positionOf(targetId) == 1){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 2);
+				if(isFirst(routeIdT, targetId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 2);
 				}
 				//if this node is the last one to visit
-				else if(routeT.positionOf(targetId) == routeS.size() - 2){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 1);
+				else if(isLast(routeIdT, targetId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 1);
 				}
 			}
 			// if the twos nodes are already in two different routes
 			else if(solution.getRouteIdByNodeId(targetId) != solution.getRouteIdByNodeId(sourceId)){
 				
 				//get the route for each other
-				VRPRoute routeT = (VRPRoute) solution.getRoute(solution.getRouteIdByNodeId(targetId));
-				VRPRoute routeS = (VRPRoute) solution.getRoute(solution.getRouteIdByNodeId(sourceId));
+				int routeIdT = solution.getRouteIdByNodeId(targetId);
+				int routeIdS = solution.getRouteIdByNodeId(sourceId);
 				
 				//if source node is the first to visit and the target node is also the first
-				if(routeS.positionOf(sourceId) == 1 && routeT.positionOf(targetId) == 1){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 0);
+				if(isFirst(routeIdS, sourceId) && isFirst(routeIdT, targetId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 0);
 				}
 				//if source node is the first to visit while the target node is the last
-				else if(routeS.positionOf(sourceId) == 1 && routeT.positionOf(targetId) == routeT.size() - 2){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 1);
+				else if(isFirst(routeIdS, sourceId) && isLast(routeIdT, targetId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 1);
 				}
 				//if source node is the last to visit while the target is the first
-				else if(routeS.positionOf(sourceId) == routeS.size() - 2 && routeT.positionOf(targetId) == 1){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 2);
+				else if(isLast(routeIdS, sourceId) && isFirst(routeIdT, targetId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 2);
 				}
 				//if source node is the last to visit and the target is the last
-				else if(routeS.positionOf(sourceId) == routeS.size() - 2 && routeT.positionOf(targetId) == routeT.size() - 2){
-					join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 3);
+				else if(isLast(routeIdS, sourceId) && isLast(routeIdT, targetId)){
+					merged = join(solution.getRouteIdByNodeId(sourceId), solution.getRouteIdByNodeId(targetId), 3);
 				}
 			}
 			
-			//remove the saving evaluated from the list
-			savings.remove(0);
+			if(merged){
+				routes--;
+				pushLoad(solution.getLoad(solution.getRouteIdByNodeId(sourceId)), sourceId);
+				open = mergePossible();
+			}
 			
-			//calculate for each route the current cost and also the total cost of current solution
-			double costTotal = 0.0;
-			for(int i=0; i<solution.size(); i++){
-				double cost = 0.0;
-				for(int j=0; j<solution.size(i) - 1; j++){
-					cost += distances.getDistance(solution.getNode(i, j), solution.getNode(i, j+1));
+			if(listener != null){
+				if(merged){
+					listener.mergeAccepted(sourceId, targetId, attempt, routes);
+				}else if(attempt >= 0){
+					listener.mergeRejected(sourceId, targetId);
 				}
-				solution.setCost(i, cost);
-				costTotal += cost;
 			}
-			solution.setOF(costTotal);
+			
+			if(debug){
+				checkObjective();
+			}
 		
 		}
 		
+		//serve the customers not reached by the processed savings with D->i->D routes
+		for(int i=1; i<distances.size(); i++){
+			if(!solution.containsNode(i)){
+				createRoute(i);
+			}
+		}
+		
+		if(listener != null){
+			listener.phaseEnded(ISolverListener.Phase.MERGE, System.nanoTime() - start);
+		}
 		return solution;
 	}
 	
+	/**
+	 * Creates a D->i->D route in the solution
+	 * 
+	 * @param nodeId the customer served by the route
+	 * @return the created route
+	 */
+	private VRPRoute createRoute(int nodeId){
+		VRPRoute route = new VRPRoute(new LinkedRoute());
+		route.add(0);
+		route.add(nodeId);
+		route.add(0);
+		route.setLoad(demands.getDemand(nodeId));
+		route.setCost(distances.getDistance(0, nodeId) + distances.getDistance(nodeId, 0));
+		//the route is not shared, it can be handed over to the solution without the copy made by addRoute
+		solution.insertRoute(route, solution.size());
+		solution.setOF(solution.getOF() + route.getCost());
+		return route;
+	}
+	
+	/**
+	 * @param r id of route
+	 * @param nodeId
+	 * @return true if the node is the first one visited by the route (i.e., right after the depot)
+	 */
+	private boolean isFirst(int r, int nodeId){
+		return solution.getFirstCustomer(r) == nodeId;
+	}
+	
+	/**
+	 * @param r id of route
+	 * @param nodeId
+	 * @return true if the node is the last one visited by the route (i.e., right before the depot)
+	 */
+	private boolean isLast(int r, int nodeId){
+		return solution.getLastCustomer(r) == nodeId;
+	}
+	
+	/**
+	 * Checks whether a merge is still possible, that is, whether the two smallest loads among the routes and the
+	 * customers not yet assigned to a route fit together in a car. Once this is not the case the rest of the savings
+	 * list cannot change the solution.</br>
+	 * The loads are kept in a min-heap of (load, customer) entries instead of being scanned, so a check costs
+	 * O(log n) amortised: a merge pushes the load of the merged route, and the entries of the routes it replaced are
+	 * dropped when they reach the top (see {@link #isCurrent(int)}).
+	 * 
+	 * @return true if two routes (or unassigned customers) could still be merged
+	 */
+	private boolean mergePossible(){
+		dropStale();
+		if(heapSize < 2){
+			return false;
+		}
+		double min1 = loads[0];
+		int owner1 = owners[0];
+		popLoad();
+		dropStale();
+		boolean possible = heapSize > 0 && min1 + loads[0] <= Q;
+		pushLoad(min1, owner1);
+		return possible;
+	}
+	
+	/**
+	 * Fills the heap of loads with the routes of the solution and the customers not yet in a route
+	 */
+	private void initLoads(){
+		int n = distances.size();
+		if(loads.length < Math.max(16, n)){
+			loads = new double[Math.max(16, n)];
+			owners = new int[loads.length];
+		}
+		heapSize = 0;
+		for(int r=0; r<solution.size(); r++){
+			if(solution.size(r) > 2){
+				pushLoad(solution.getLoad(r), solution.getFirstCustomer(r));
+			}
+		}
+		for(int i=1; i<n; i++){
+			if(!solution.containsNode(i)){
+				pushLoad(demands.getDemand(i), i);
+			}
+		}
+	}
+	
+	/**
+	 * An entry is current if the route of its customer (or the customer itself, if it is not in a route yet) still
+	 * has its load. Loads only grow, so the entry of a merged route is never current again, except when a merge adds
+	 * nothing to a load (customers of demand 0): the route may then have two current entries, which can only make
+	 * {@link #mergePossible()} answer true for longer.
+	 * 
+	 * @param k the position of the entry in the heap
+	 * @return true if the entry is current
+	 */
+	private boolean isCurrent(int k){
+		int owner = owners[k];
+		if(!solution.containsNode(owner)){
+			return demands.getDemand(owner) == loads[k];
+		}
+		return solution.getLoad(solution.getRouteIdByNodeId(owner)) == loads[k];
+	}
+	
+	/**
+	 * Removes the entries at the top of the heap of loads that are not current
+	 */
+	private void dropStale(){
+		while(heapSize > 0 && !isCurrent(0)){
+			popLoad();
+		}
+	}
+	
+	/**
+	 * Adds an entry to the heap of loads. When the heap is full, the entries that are not current are dropped first,
+	 * so it only grows beyond the number of customers in the case of loads of 0.
+	 */
+	private void pushLoad(double load, int owner){
+		if(heapSize == loads.length){
+			int kept = 0;
+			for(int k=0; k<heapSize; k++){
+				if(isCurrent(k)){
+					loads[kept] = loads[k];
+					owners[kept] = owners[k];
+					kept++;
+				}
+			}
+			heapSize = kept;
+			for(int k=heapSize / 2 - 1; k>=0; k--){
+				siftDown(k);
+			}
+			if(heapSize == loads.length){
+				loads = Arrays.copyOf(loads, 2 * loads.length);
+				owners = Arrays.copyOf(owners, loads.length);
+			}
+		}
+		int k = heapSize++;
+		while(k > 0 && loads[(k - 1) / 2] > load){
+			loads[k] = loads[(k - 1) / 2];
+			owners[k] = owners[(k - 1) / 2];
+			k = (k - 1) / 2;
+		}
+		loads[k] = load;
+		owners[k] = owner;
+	}
+	
+	/**
+	 * Removes the smallest entry of the heap of loads
+	 */
+	private void popLoad(){
+		heapSize--;
+		loads[0] = loads[heapSize];
+		owners[0] = owners[heapSize];
+		siftDown(0);
+	}
+	
+	/**
+	 * Restores the heap order of the heap of loads below position <code>k</code>
+	 */
+	private void siftDown(int k){
+		double load = loads[k];
+		int owner = owners[k];
+		while(2 * k + 1 < heapSize){
+			int child = 2 * k + 1;
+			if(child + 1 < heapSize && loads[child + 1] < loads[child]){
+				child++;
+			}
+			if(loads[child] >= load){
+				break;
+			}
+			loads[k] = loads[child];
+			owners[k] = owners[child];
+			k = child;
+		}
+		loads[k] = load;
+		owners[k] = owner;
+	}
+	
 	/**
 	 * Join two different routes into one route.</br>
 	 * Four directions are introduced to implement:
@@ -240,62 +549,62 @@ public class ClarkeWright implements IOptimizationAlgorithm{
 	 * @param routeIdS id of route
 	 * @param routeIdT id of route
 	 * @param direction direction of join
+	 * @return true if the routes were joined, false if joining them would violate a constraint
 	 */
-	private void join(int routeIdS, int routeIdT, int direction){
-		if(verifyJoin(routeIdS, routeIdT)){// if all the constraints are respected
-			
-			// get the two routes
-			VRPRoute routeS = (VRPRoute) solution.getRoute(routeIdS);
-			VRPRoute routeT = (VRPRoute) solution.getRoute(routeIdT);
+	private boolean join(int routeIdS, int routeIdT, int direction){
+		attempt = direction;
+		boolean joined = verifyJoin(routeIdS, routeIdT);
+		if(joined){// if all the constraints are respected
 			
 			// recalculate the load for the car
-			double load = (routeS.getLoad() + routeT.getLoad());
+			double load = solution.getLoad(routeIdS) + solution.getLoad(routeIdT);
+			
+			// the joined end points of the two routes
+			int endS = (direction == 0 || direction == 1) ? solution.getFirstCustomer(routeIdS) : solution.getLastCustomer(routeIdS);
+			int endT = (direction == 0 || direction == 2) ? solution.getFirstCustomer(routeIdT) : solution.getLastCustomer(routeIdT);
+			
+			// the merge replaces edges (endS, D) and (D, endT) by edge (endS, endT)
+			double delta = distances.getDistance(endS, endT) - distances.getDistance(endS, 0) - distances.getDistance(endT, 0);
+			double cost = solution.getCost(routeIdS) + solution.getCost(routeIdT) + delta;
+			solution.setOF(solution.getOF() + delta);
 			
 			//head - head
 			if(direction == 0){
 				solution.remove(routeIdS, 0);
-				routeT.remove(0);
 				solution.reverse(routeIdS);
-				for(int i=0 ;i<routeT.size(); i++){
-					solution.insert(routeT.get(i), routeIdS, solution.getRoute(routeIdS).size());
-				}
+				solution.remove(routeIdT, 0);
 				solution.setLoad(routeIdS, load);
-				solution.remove(routeIdT);
+				solution.setCost(routeIdS, cost);
+				solution.append(routeIdS, routeIdT);
 			}
 			//head - tail
 			if(direction == 1){
-				routeS.remove(0);
-				solution.remove(routeIdT, routeT.size() - 1);
-				for(int i=0 ;i<routeS.size(); i++){
-					solution.insert(routeS.get(i), routeIdT, solution.getRoute(routeIdT).size());
-				}
+				solution.remove(routeIdS, 0);
+				solution.remove(routeIdT, solution.size(routeIdT) - 1);
 				solution.setLoad(routeIdT, load);
-				solution.remove(routeIdS);
+				solution.setCost(routeIdT, cost);
+				solution.append(routeIdT, routeIdS);
 			}
 			//tail - head
 			if(direction == 2){
 				solution.remove(routeIdS, solution.size(routeIdS) - 1);
-				routeT.remove(0);
-				for(int i=0 ;i<routeT.size(); i++){
-					solution.insert(routeT.get(i), routeIdS, solution.getRoute(routeIdS).size());
-				}
+				solution.remove(routeIdT, 0);
 				solution.setLoad(routeIdS, load);
-				solution.remove(routeIdT);
+				solution.setCost(routeIdS, cost);
+				solution.append(routeIdS, routeIdT);
 			}
 			//tail - tail
 			if(direction == 3){
 				solution.remove(routeIdS, solution.size(routeIdS) - 1);
-				routeT.remove(routeT.size() - 1);
-				routeT.reverse();
-				for(int i=0 ;i<routeT.size(); i++){
-					solution.insert(routeT.get(i), routeIdS, solution.getRoute(routeIdS).size());
-				}
+				solution.remove(routeIdT, solution.size(routeIdT) - 1);
+				solution.reverse(routeIdT);
 				solution.setLoad(routeIdS, load);
-				solution.remove(routeIdT);
+				solution.setCost(routeIdS, cost);
+				solution.append(routeIdS, routeIdT);
 			}
 			
 		}
-		
+		return joined;
 	}
 	
 	/**
@@ -308,9 +617,7 @@ public class ClarkeWright implements IOptimizationAlgorithm{
 	 */
 	private boolean verifyJoin(int routeIdS, int routeIdT){
 		boolean satisfy = true;
-		VRPRoute routeS = (VRPRoute) solution.getRoute(routeIdS);
-		VRPRoute routeT = (VRPRoute) solution.getRoute(routeIdT);
-		double demandTotal = routeS.getLoad() + routeT.getLoad();
+		double demandTotal = solution.getLoad(routeIdS) + solution.getLoad(routeIdT);
 		if(demandTotal > Q){
 			satisfy = false;
 		}
@@ -318,5 +625,51 @@ public class ClarkeWright implements IOptimizationAlgorithm{
 		return satisfy;
 	}
 	
+	/**
+	 * Computes from scratch the cost of every route in the solution and the objective function
+	 * 
+	 * @return the objective function of the current solution
+	 */
+	private double evaluate(){
+		double costTotal = 0.0;
+		for(int i=0; i<solution.size(); i++){
+			double cost = routeCost(i);
+			solution.setCost(i, cost);
+			costTotal += cost;
+		}
+		return costTotal;
+	}
+	
+	/**
+	 * Computes the cost of a route by walking its edges
+	 * 
+	 * @param r id of route
+	 * @return the cost of the route
+	 */
+	private double routeCost(int r){
+		double cost = 0.0;
+		for(int j=0; j<solution.size(r) - 1; j++){
+			cost += distances.getDistance(solution.getNode(r, j), solution.getNode(r, j+1));
+		}
+		return cost;
+	}
+	
+	/**
+	 * Verifies that the route costs and the objective function maintained incrementally match a full recomputation
+	 * 
+	 * @throws IllegalStateException if a mismatch is found
+	 */
+	private void checkObjective(){
+		double costTotal = 0.0;
+		for(int i=0; i<solution.size(); i++){
+			double cost = routeCost(i);
+			if(Math.abs(cost - solution.getCost(i)) > TOLERANCE * Math.max(1.0, cost))
+				throw new IllegalStateException("cost of route " + i + " is " + solution.getCost(i) + " but should be " + cost);
+			costTotal += cost;
+		}
+		if(Math.abs(costTotal - solution.getOF()) > TOLERANCE * Math.max(1.0, costTotal))
+			throw new IllegalStateException("objective function is " + solution.getOF() + " but should be " + costTotal);
+	}
+	
 	
 }
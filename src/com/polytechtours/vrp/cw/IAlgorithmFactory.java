@@ -0,0 +1,24 @@
+package com.polytechtours.vrp.cw;
+
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * Defines the interface of factories building a heuristic for an instance, e.g., for batch runs. Preprocessing that
+ * is not part of the heuristic itself (such as the generation of the savings) is done when the heuristic is built.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 3, 2018
+ *
+ */
+public interface IAlgorithmFactory {
+	/**
+	 * Builds the heuristic for an instance
+	 * @param distances the distance matrix
+	 * @param demands the demands
+	 * @param Q the vehicle capacity
+	 * @return the heuristic, ready to {@link IOptimizationAlgorithm#run()}
+	 */
+	public IOptimizationAlgorithm create(IDistanceMatrix distances, IDemands demands, double Q);
+
+}
@@ -1,6 +1,7 @@
 package com.polytechtours.vrp.cw;
 
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Implements the interface to a route. Implementing classes can use any data structure (arrays, linked lists, etc.) store route information.
@@ -91,6 +92,16 @@ public interface IRoute extends Cloneable{
 	 * in which they are visited by the route.
 	 */
 	public List<Integer> getRoute();
+	/**
+	 * Performs an action on each node of the route, in the order in which they are visited. Unlike {@link #getRoute()} this method
+	 * does not copy the route. The default implementation calls {@link #get(int)} on each position; implementing classes for which
+	 * positional access is not constant time should override it.
+	 * @param action the action to perform
+	 */
+	public default void forEach(IntConsumer action){
+		for(int i=0;i<size();i++)
+			action.accept(get(i));
+	}
 	
 	
 }
@@ -0,0 +1,35 @@
+package com.polytechtours.vrp.cw;
+
+/**
+ * Defines the interface to a source of savings consumed by {@link ClarkeWright}. A source yields the savings one at a
+ * time in descending order and is consumed only once.
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 22, 2018
+ *
+ */
+public interface ISavingsSource {
+	/**
+	 * Moves the source to the next saving
+	 * @return true if there is a current saving, false if the source is exhausted
+	 */
+	public boolean next();
+	/**
+	 * @return the id of first node of the current saving
+	 */
+	public int getSourceId();
+	/**
+	 * @return the id of second node of the current saving
+	 */
+	public int getTargetId();
+	/**
+	 * @return the value of the current saving
+	 */
+	public float getSaving();
+	/**
+	 * @return the total number of savings the source can yield
+	 */
+	public int size();
+
+}
@@ -0,0 +1,69 @@
+package com.polytechtours.vrp.cw;
+
+/**
+ * Defines the interface of listeners observing a run of {@link ClarkeWright} (see
+ * {@link ClarkeWright#setListener(ISolverListener)}). Every method does nothing by default, so a listener only
+ * overrides the events it needs. The per-saving events are raised from the merge loop and must be cheap.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public interface ISolverListener {
+
+	/**
+	 * The phases of a run
+	 */
+	public enum Phase {
+		/** computation of the savings */
+		GENERATION,
+		/** sorting of the savings */
+		SORT,
+		/** processing of the savings list (merge loop) */
+		MERGE
+	}
+
+	/**
+	 * Called when a run starts, before any other event of the run
+	 * @param customers the number of customers, i.e., the number of routes before the first merge
+	 */
+	public default void runStarted(int customers){
+	}
+
+	/**
+	 * Called when a phase ends. The savings of a {@link SavingsStore} are computed and sorted before the run, their
+	 * phases are reported when the run starts; the savings of an {@link ISavingsSource} are computed during the merge
+	 * phase and not reported separately.
+	 * @param phase the phase
+	 * @param nanos the time spent in the phase, in nanoseconds
+	 */
+	public default void phaseEnded(Phase phase, long nanos){
+	}
+
+	/**
+	 * Called for each saving taken from the savings list
+	 * @param sourceId id of first node of the saving
+	 * @param targetId id of second node of the saving
+	 */
+	public default void savingExamined(int sourceId, int targetId){
+	}
+
+	/**
+	 * Called when the saving under examination links the ends of two routes but their loads exceed the capacity
+	 * @param sourceId id of first node of the saving
+	 * @param targetId id of second node of the saving
+	 */
+	public default void mergeRejected(int sourceId, int targetId){
+	}
+
+	/**
+	 * Called when the saving under examination merges two routes
+	 * @param sourceId id of first node of the saving
+	 * @param targetId id of second node of the saving
+	 * @param direction the direction of the merge (0: head-head, 1: head-tail, 2: tail-head, 3: tail-tail)
+	 * @param routes the number of routes after the merge, customers not yet in a route counted as routes of their own
+	 */
+	public default void mergeAccepted(int sourceId, int targetId, int direction, int routes){
+	}
+
+}
@@ -0,0 +1,177 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a route using a growable <code>int</code> array as the underlying data structure. Unlike {@link ArrayRoute}
+ * node IDs are never boxed, {@link #clone()} copies the array in one call and {@link #reverse()} works in place.
+ * Client classes that only need to read the route should prefer {@link #forEach(IntConsumer)} or {@link #get(int)}
+ * over {@link #getRoute()}, which allocates a list.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 25, 2018
+ *
+ */
+public class IntArrayRoute implements IRoute {
+	/**
+	 * Holds the route in positions 0 to {@link #size}-1
+	 */
+	private int[] route;
+	/**
+	 * The number of nodes in the route
+	 */
+	private int size;
+
+	public IntArrayRoute(){
+		this(8);
+	}
+
+	/**
+	 * @param capacity the initial number of nodes the route can hold without growing
+	 */
+	public IntArrayRoute(int capacity){
+		this.route=new int[Math.max(capacity, 1)];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(int nodeID) {
+		return positionOf(nodeID)>=0;
+	}
+
+	@Override
+	public void reverse() {
+		for(int i=0, j=size-1; i<j; i++, j--){
+			int temp=route[i];
+			route[i]=route[j];
+			route[j]=temp;
+		}
+	}
+
+	@Override
+	public int positionOf(int nodeID) {
+		for(int i=0;i<size;i++){
+			if(route[i]==nodeID)
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int get(int i) {
+		checkIndex(i, size);
+		return route[i];
+	}
+
+	@Override
+	public void add(int nodeID) {
+		if(size==route.length)
+			route=Arrays.copyOf(route, 2*route.length);
+		route[size++]=nodeID;
+	}
+
+	@Override
+	public void insert(int nodeID, int i) {
+		checkIndex(i, size+1);
+		if(size==route.length)
+			route=Arrays.copyOf(route, 2*route.length);
+		System.arraycopy(route, i, route, i+1, size-i);
+		route[i]=nodeID;
+		size++;
+	}
+
+	@Override
+	public boolean removeID(int nodeID) {
+		int i=positionOf(nodeID);
+		if(i<0)
+			return false;
+		remove(i);
+		return true;
+	}
+
+	@Override
+	public int remove(int i) {
+		checkIndex(i, size);
+		int nodeID=route[i];
+		System.arraycopy(route, i+1, route, i, size-i-1);
+		size--;
+		return nodeID;
+	}
+
+	@Override
+	public void swap(int i, int j) {
+		checkIndex(i, size);
+		checkIndex(j, size);
+		int temp=route[i];
+		route[i]=route[j];
+		route[j]=temp;
+	}
+
+	@Override
+	public void relocate(int i, int j) {
+		checkIndex(i, size);
+		int nodeID=route[i];
+		if(i<j){
+			//same semantics as inserting at j and then removing i: the node ends up in position j-1
+			checkIndex(j, size+1);
+			System.arraycopy(route, i+1, route, i, j-i-1);
+			route[j-1]=nodeID;
+		}else{
+			checkIndex(j, size);
+			System.arraycopy(route, j, route, j+1, i-j);
+			route[j]=nodeID;
+		}
+	}
+
+	@Override
+	public IRoute clone() {
+		IntArrayRoute clone=new IntArrayRoute(0);
+		clone.route=Arrays.copyOf(this.route, Math.max(size, 1));
+		clone.size=this.size;
+		return clone;
+	}
+
+	@Override
+	public void forEach(IntConsumer action) {
+		for(int i=0;i<size;i++)
+			action.accept(route[i]);
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb=new StringBuilder();
+		sb.append("[\t");
+		for(int i=0;i<size;i++)
+			sb.append(route[i]+"\t");
+		sb.append("]");
+		return sb.toString();
+	}
+
+	/**
+	 * To guarantee object encapsulation this method returns a hard copy of the list of nodes in the route. Therefore, the method runs in O(n)
+	 * and boxes every node. Client classes that do not need a copy should use {@link #forEach(IntConsumer)} instead.
+	 */
+	@Override
+	public List<Integer> getRoute() {
+		List<Integer> list=new ArrayList<>(size);
+		for(int i=0;i<size;i++)
+			list.add(route[i]);
+		return list;
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException if <code>i</code> is not in [0, bound)
+	 */
+	private static void checkIndex(int i, int bound){
+		if(i<0 || i>=bound)
+			throw new IndexOutOfBoundsException("Index: "+i+", Size: "+bound);
+	}
+
+}
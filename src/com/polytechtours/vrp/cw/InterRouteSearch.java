@@ -0,0 +1,427 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * Improves a {@link VRPSolution} with moves between two routes, and plugs in after any {@link IOptimizationAlgorithm}
+ * returning a {@link VRPSolution}:
+ * <ul>
+ * <li>relocate: a customer moves to another route, before or after a neighbour;</li>
+ * <li>swap: a customer trades places with the customer before or after a neighbour in another route;</li>
+ * <li>2-opt*: two routes exchange their tails, so that a customer is followed (or preceded) by a neighbour. When a
+ * route gets both empty parts, the move merges two routes.</li>
+ * </ul>
+ * Each route caches the load and the cost of each of its prefixes, so the capacity check against Q and the cost delta
+ * of a move are evaluated in O(1), without walking the routes; applying a move rebuilds the caches of the two routes
+ * it changes. As in {@link IntraRouteSearch}, moves create an edge between a customer and one of its k nearest
+ * neighbours, are applied as soon as they improve the solution, and only the customers whose don't-look bit is off
+ * (i.e., in the queue) are used as the anchor of a move. The distance matrix is assumed symmetric.</br>
+ * The routes emptied by the search are removed from the solution; the costs and the objective function are updated.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class InterRouteSearch implements IOptimizationAlgorithm {
+
+	/**
+	 * smallest gain of an improving move, so that rounding errors cannot make the search cycle
+	 */
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * the algorithm building the solution to improve, if any
+	 */
+	private final IOptimizationAlgorithm algorithm;
+	/**
+	 * matrix of distances
+	 */
+	private final IDistanceMatrix distances;
+	/**
+	 * demand of each node
+	 */
+	private final double[] demands;
+	/**
+	 * capacity of car
+	 */
+	private final double Q;
+	/**
+	 * the nearest neighbours of each node
+	 */
+	private final int[][] neighbors;
+	/**
+	 * the routes of the solution being improved
+	 */
+	private Route[] routes;
+	/**
+	 * route of each customer
+	 */
+	private final int[] routeOf;
+	/**
+	 * position of each customer in its route
+	 */
+	private final int[] position;
+	/**
+	 * true for the customers in the queue (i.e., whose don't-look bit is off)
+	 */
+	private final boolean[] queued;
+	/**
+	 * circular queue of customers
+	 */
+	private final int[] queue;
+	private int head;
+	private int count;
+	/**
+	 * number of moves of each kind applied to the last improved solution
+	 */
+	private int relocations, swaps, tailExchanges;
+	/**
+	 * reusable action loading the customers of a route
+	 */
+	private final Loader loader = new Loader();
+
+	/**
+	 * Constructs a search improving the solutions of an algorithm
+	 * @param algorithm the algorithm building the solutions, whose {@link IOptimizationAlgorithm#run()} must return a
+	 * {@link VRPSolution}
+	 * @param distances
+	 * @param demands
+	 * @param Q
+	 * @param neighbors the nearest neighbours of each node
+	 */
+	public InterRouteSearch(IOptimizationAlgorithm algorithm, IDistanceMatrix distances, IDemands demands, double Q, int[][] neighbors){
+		int n = distances.size();
+		this.algorithm = algorithm;
+		this.distances = distances;
+		this.Q = Q;
+		this.neighbors = neighbors;
+		this.demands = new double[n];
+		for(int i=1; i<n; i++)
+			this.demands[i] = demands.getDemand(i);
+		this.routeOf = new int[n];
+		this.position = new int[n];
+		this.queued = new boolean[n];
+		this.queue = new int[n];
+	}
+
+	/**
+	 * Constructs a search improving given solutions with {@link #improve(VRPSolution)}
+	 * @param distances
+	 * @param demands
+	 * @param Q
+	 * @param neighbors the nearest neighbours of each node
+	 */
+	public InterRouteSearch(IDistanceMatrix distances, IDemands demands, double Q, int[][] neighbors){
+		this(null, distances, demands, Q, neighbors);
+	}
+
+	@Override
+	public ISolution run(){
+		VRPSolution solution = (VRPSolution) algorithm.run();
+		improve(solution);
+		return solution;
+	}
+
+	/**
+	 * @return the number of relocations applied to the last improved solution
+	 */
+	public int getRelocations(){
+		return relocations;
+	}
+
+	/**
+	 * @return the number of swaps applied to the last improved solution
+	 */
+	public int getSwaps(){
+		return swaps;
+	}
+
+	/**
+	 * @return the number of 2-opt* moves applied to the last improved solution
+	 */
+	public int getTailExchanges(){
+		return tailExchanges;
+	}
+
+	/**
+	 * Improves a solution
+	 * @param solution the solution, modified in place
+	 * @return the gain
+	 */
+	public double improve(VRPSolution solution){
+		relocations = 0;
+		swaps = 0;
+		tailExchanges = 0;
+		head = 0;
+		count = 0;
+		double before = 0;
+		routes = new Route[solution.size()];
+		for(int r=0; r<routes.length; r++){
+			int[] nodes = new int[solution.size(r) - 2];
+			loader.nodes = nodes;
+			loader.next = 0;
+			solution.getRouteView(r).forEach(loader);
+			routes[r] = new Route();
+			set(r, nodes, nodes.length);
+			before += routes[r].cost;
+			for(int p=0; p<nodes.length; p++)
+				push(nodes[p]);
+		}
+
+		while(count > 0){
+			int x = queue[head];
+			head = (head + 1) % queue.length;
+			count--;
+			queued[x] = false;
+			search(x);
+		}
+
+		// write the changed routes back, and remove the emptied ones
+		double after = 0;
+		for(int r=routes.length - 1; r>=0; r--){
+			Route route = routes[r];
+			after += route.cost;
+			if(!route.changed)
+				continue;
+			if(route.size == 0){
+				solution.remove(r);
+				continue;
+			}
+			VRPRoute written = new VRPRoute();
+			written.add(0);
+			for(int p=0; p<route.size; p++)
+				written.add(route.nodes[p]);
+			written.add(0);
+			written.setLoad(route.load);
+			written.setCost(route.cost);
+			solution.setRoute(r, written);
+		}
+		solution.setOF(solution.getOF() - (before - after));
+		return before - after;
+	}
+
+	/**
+	 * Tries the moves creating an edge between a customer and one of its neighbours, and applies the first improving one
+	 * @param x the customer
+	 */
+	private void search(int x){
+		int a = routeOf[x];
+		int i = position[x];
+		for(int y : neighbors[x]){
+			if(y == 0 || routeOf[y] == a)
+				continue;
+			int b = routeOf[y];
+			int j = position[y];
+			Route B = routes[b];
+			if(relocate(a, i, b, j + 1) || relocate(a, i, b, j)
+					|| (j + 1 < B.size && swap(a, i, b, j + 1)) || (j > 0 && swap(a, i, b, j - 1))
+					|| exchangeTails(a, i, b, j) || exchangeTails(b, j, a, i)){
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Moves the customer in position <code>i</code> of route <code>a</code> to position <code>j</code> of route
+	 * <code>b</code> if it improves the solution
+	 * @return true if the move was applied
+	 */
+	private boolean relocate(int a, int i, int b, int j){
+		Route A = routes[a], B = routes[b];
+		int x = A.nodes[i];
+		if(B.load + demands[x] > Q)
+			return false;
+		int pa = A.at(i - 1), na = A.at(i + 1), pb = B.at(j - 1), nb = B.at(j);
+		double gain = d(pa, x) + d(x, na) - d(pa, na) + d(pb, nb) - d(pb, x) - d(x, nb);
+		if(gain <= EPSILON)
+			return false;
+
+		int[] nodesA = new int[A.size - 1];
+		System.arraycopy(A.nodes, 0, nodesA, 0, i);
+		System.arraycopy(A.nodes, i + 1, nodesA, i, A.size - i - 1);
+		int[] nodesB = new int[B.size + 1];
+		System.arraycopy(B.nodes, 0, nodesB, 0, j);
+		nodesB[j] = x;
+		System.arraycopy(B.nodes, j, nodesB, j + 1, B.size - j);
+		set(a, nodesA, nodesA.length);
+		set(b, nodesB, nodesB.length);
+		relocations++;
+		push(x, pa, na, pb, nb);
+		return true;
+	}
+
+	/**
+	 * Exchanges the customers in position <code>i</code> of route <code>a</code> and in position <code>j</code> of route
+	 * <code>b</code> if it improves the solution
+	 * @return true if the move was applied
+	 */
+	private boolean swap(int a, int i, int b, int j){
+		Route A = routes[a], B = routes[b];
+		int x = A.nodes[i], z = B.nodes[j];
+		if(A.load - demands[x] + demands[z] > Q || B.load - demands[z] + demands[x] > Q)
+			return false;
+		int pa = A.at(i - 1), na = A.at(i + 1), pb = B.at(j - 1), nb = B.at(j + 1);
+		double gain = d(pa, x) + d(x, na) - d(pa, z) - d(z, na) + d(pb, z) + d(z, nb) - d(pb, x) - d(x, nb);
+		if(gain <= EPSILON)
+			return false;
+
+		int[] nodesA = Arrays.copyOf(A.nodes, A.size);
+		int[] nodesB = Arrays.copyOf(B.nodes, B.size);
+		nodesA[i] = z;
+		nodesB[j] = x;
+		set(a, nodesA, nodesA.length);
+		set(b, nodesB, nodesB.length);
+		swaps++;
+		push(x, z, pa, na, pb, nb);
+		return true;
+	}
+
+	/**
+	 * Replaces route <code>a</code> by its head up to position <code>i</code> followed by the tail of route
+	 * <code>b</code> from position <code>j</code>, and route <code>b</code> by its head up to position <code>j-1</code>
+	 * followed by the tail of route <code>a</code> from position <code>i+1</code>, if it improves the solution
+	 * @return true if the move was applied
+	 */
+	private boolean exchangeTails(int a, int i, int b, int j){
+		Route A = routes[a], B = routes[b];
+		double loadA = A.loadTo(i) + B.load - B.loadTo(j - 1);
+		double loadB = B.loadTo(j - 1) + A.load - A.loadTo(i);
+		if(loadA > Q || loadB > Q)
+			return false;
+		int x = A.nodes[i], y = B.nodes[j], na = A.at(i + 1), pb = B.at(j - 1);
+		double costA = A.costTo(i) + d(x, y) + B.costFrom(j);
+		double costB = B.costTo(j - 1) + d(pb, na) + A.costFrom(i + 1);
+		double gain = A.cost + B.cost - costA - costB;
+		if(gain <= EPSILON)
+			return false;
+
+		int[] nodesA = new int[i + 1 + B.size - j];
+		System.arraycopy(A.nodes, 0, nodesA, 0, i + 1);
+		System.arraycopy(B.nodes, j, nodesA, i + 1, B.size - j);
+		int[] nodesB = new int[j + A.size - i - 1];
+		System.arraycopy(B.nodes, 0, nodesB, 0, j);
+		System.arraycopy(A.nodes, i + 1, nodesB, j, A.size - i - 1);
+		set(a, nodesA, nodesA.length);
+		set(b, nodesB, nodesB.length);
+		tailExchanges++;
+		push(x, y, na, pb);
+		return true;
+	}
+
+	/**
+	 * Sets the customers of a route and rebuilds its caches and the positions of its customers
+	 */
+	private void set(int r, int[] nodes, int size){
+		Route route = routes[r];
+		route.changed = route.nodes != null;
+		route.nodes = nodes;
+		route.size = size;
+		route.loads = new double[size];
+		route.costs = new double[size];
+		double load = 0, cost = 0;
+		int previous = 0;
+		for(int p=0; p<size; p++){
+			load += demands[nodes[p]];
+			cost += d(previous, nodes[p]);
+			route.loads[p] = load;
+			route.costs[p] = cost;
+			routeOf[nodes[p]] = r;
+			position[nodes[p]] = p;
+			previous = nodes[p];
+		}
+		route.load = load;
+		route.cost = size > 0 ? cost + d(previous, 0) : 0;
+	}
+
+	private double d(int i, int j){
+		return distances.getDistance(i, j);
+	}
+
+	/**
+	 * Puts the customers not in the queue at its end
+	 */
+	private void push(int... nodes){
+		for(int node : nodes){
+			if(node == 0 || queued[node])
+				continue;
+			queued[node] = true;
+			queue[(head + count) % queue.length] = node;
+			count++;
+		}
+	}
+
+	/**
+	 * Copies the customers it accepts to {@link #nodes}, skipping the depot
+	 */
+	private static final class Loader implements IntConsumer {
+		private int[] nodes;
+		/**
+		 * the position of the next customer
+		 */
+		private int next;
+
+		@Override
+		public void accept(int node){
+			if(node != 0)
+				nodes[next++] = node;
+		}
+	}
+
+	/**
+	 * A route with the caches of its prefixes. The depot is implicit at both ends.
+	 */
+	private static final class Route {
+		/**
+		 * the customers, in positions 0 to size-1
+		 */
+		private int[] nodes;
+		private int size;
+		/**
+		 * load of the customers in positions 0 to p
+		 */
+		private double[] loads;
+		/**
+		 * cost from the depot to the customer in position p
+		 */
+		private double[] costs;
+		private double load;
+		private double cost;
+		/**
+		 * true if the route was changed by the search
+		 */
+		private boolean changed;
+
+		/**
+		 * @return the node in position p, the depot if p is before the first or after the last customer
+		 */
+		private int at(int p){
+			return p < 0 || p >= size ? 0 : nodes[p];
+		}
+
+		/**
+		 * @return the load of the customers in positions 0 to p (0 if p is negative)
+		 */
+		private double loadTo(int p){
+			return p < 0 ? 0 : loads[p];
+		}
+
+		/**
+		 * @return the cost from the depot to the customer in position p (0 if p is negative)
+		 */
+		private double costTo(int p){
+			return p < 0 ? 0 : costs[p];
+		}
+
+		/**
+		 * @return the cost from the customer in position p to the depot (0 if p is past the last customer)
+		 */
+		private double costFrom(int p){
+			return p >= size ? 0 : cost - costs[p];
+		}
+	}
+
+}
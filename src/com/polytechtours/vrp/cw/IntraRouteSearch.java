@@ -0,0 +1,399 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.function.IntConsumer;
+
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * Improves each route of a {@link VRPSolution} on its own with 2-opt and Or-opt moves, and plugs in after any
+ * {@link IOptimizationAlgorithm} returning a {@link VRPSolution}.</br>
+ * The search is restricted in two ways, which makes its cost close to linear in the length of a route:
+ * <ul>
+ * <li>Candidate lists: a move always creates an edge between a customer and one of its k nearest neighbours in the same
+ * route (see {@link com.polytechtours.vrp.util.NearestNeighbors}), and the neighbours are scanned by increasing
+ * distance only while the new edge is shorter than the edge it replaces.</li>
+ * <li>Don't-look bits: only the customers in a queue are used as the anchor of a move. Every customer starts in the
+ * queue, leaves it when no improving move is found around it, and comes back when a move changes one of its edges.</li>
+ * </ul>
+ * Moves are applied as soon as they improve the route (first improvement). 2-opt reverses a section of the route;
+ * Or-opt moves a section of 1 to {@value #MAX_SEGMENT} customers, possibly reversed, elsewhere in the route. Both
+ * assume a symmetric distance matrix. The loads are unchanged, the costs and the objective function are updated.</br>
+ * The time spent and the gain of each route of the last improved solution are reported by {@link #getTime(int)} and
+ * {@link #getGain(int)}.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class IntraRouteSearch implements IOptimizationAlgorithm {
+
+	/**
+	 * smallest gain of an improving move, so that rounding errors cannot make the search cycle
+	 */
+	private static final double EPSILON = 1e-9;
+	/**
+	 * largest number of customers moved by Or-opt
+	 */
+	private static final int MAX_SEGMENT = 3;
+
+	/**
+	 * the algorithm building the solution to improve, if any
+	 */
+	private final IOptimizationAlgorithm algorithm;
+	/**
+	 * matrix of distances
+	 */
+	private final IDistanceMatrix distances;
+	/**
+	 * the nearest neighbours of each node, by increasing distance
+	 */
+	private final int[][] neighbors;
+	/**
+	 * the route being improved, depot included at both ends
+	 */
+	private int[] tour = new int[16];
+	/**
+	 * number of nodes of the route being improved
+	 */
+	private int m;
+	/**
+	 * section moved by Or-opt
+	 */
+	private final int[] section = new int[MAX_SEGMENT];
+	/**
+	 * reusable action loading the route being improved
+	 */
+	private final Loader loader = new Loader();
+	/**
+	 * position of each customer in the route being improved
+	 */
+	private final int[] position;
+	/**
+	 * stamp of the route each customer was last seen in; a customer is in the route being improved if its stamp is {@link #stamp}
+	 */
+	private final int[] seen;
+	/**
+	 * stamp of the route being improved
+	 */
+	private int stamp;
+	/**
+	 * true for the customers in the queue (i.e., whose don't-look bit is off)
+	 */
+	private final boolean[] queued;
+	/**
+	 * circular queue of customers
+	 */
+	private int[] queue = new int[16];
+	private int head;
+	private int count;
+	/**
+	 * gain of each route of the last improved solution
+	 */
+	private double[] gains = new double[0];
+	/**
+	 * time spent on each route of the last improved solution, in nanoseconds
+	 */
+	private long[] times = new long[0];
+
+	/**
+	 * Constructs a search improving the solutions of an algorithm
+	 * @param algorithm the algorithm building the solutions, whose {@link IOptimizationAlgorithm#run()} must return a
+	 * {@link VRPSolution}
+	 * @param distances
+	 * @param neighbors the nearest neighbours of each node, by increasing distance
+	 */
+	public IntraRouteSearch(IOptimizationAlgorithm algorithm, IDistanceMatrix distances, int[][] neighbors){
+		this.algorithm = algorithm;
+		this.distances = distances;
+		this.neighbors = neighbors;
+		this.position = new int[distances.size()];
+		this.seen = new int[distances.size()];
+		this.queued = new boolean[distances.size()];
+	}
+
+	/**
+	 * Constructs a search improving given solutions with {@link #improve(VRPSolution)}
+	 * @param distances
+	 * @param neighbors the nearest neighbours of each node, by increasing distance
+	 */
+	public IntraRouteSearch(IDistanceMatrix distances, int[][] neighbors){
+		this(null, distances, neighbors);
+	}
+
+	@Override
+	public ISolution run(){
+		VRPSolution solution = (VRPSolution) algorithm.run();
+		improve(solution);
+		return solution;
+	}
+
+	/**
+	 * Improves every route of a solution
+	 * @param solution the solution, modified in place
+	 * @return the total gain
+	 */
+	public double improve(VRPSolution solution){
+		gains = new double[solution.size()];
+		times = new long[solution.size()];
+		double total = 0;
+		for(int r=0; r<solution.size(); r++){
+			long start = System.nanoTime();
+			gains[r] = improve(solution, r);
+			times[r] = System.nanoTime() - start;
+			total += gains[r];
+		}
+		return total;
+	}
+
+	/**
+	 * @param r the index of a route
+	 * @return the gain of route <code>r</code> in the last improved solution
+	 */
+	public double getGain(int r){
+		return gains[r];
+	}
+
+	/**
+	 * @param r the index of a route
+	 * @return the time spent on route <code>r</code> of the last improved solution, in nanoseconds
+	 */
+	public long getTime(int r){
+		return times[r];
+	}
+
+	/**
+	 * @return the number of routes of the last improved solution
+	 */
+	public int getRoutes(){
+		return gains.length;
+	}
+
+	/**
+	 * Improves a route
+	 * @param solution the solution
+	 * @param r the index of the route
+	 * @return the gain
+	 */
+	private double improve(VRPSolution solution, int r){
+		m = solution.size(r);
+		// a route with less than 3 customers cannot be improved
+		if(m < 5)
+			return 0;
+		if(tour.length < m){
+			tour = new int[Math.max(m, 2 * tour.length)];
+			queue = new int[tour.length];
+		}
+		stamp++;
+		head = 0;
+		count = 0;
+		loader.next = 0;
+		loader.cost = 0;
+		solution.getRouteView(r).forEach(loader);
+		double before = loader.cost;
+
+		boolean improved = false;
+		while(count > 0){
+			int a = queue[head];
+			head = (head + 1) % queue.length;
+			count--;
+			queued[a] = false;
+			if(twoOpt(a) || orOpt(a)){
+				improved = true;
+			}
+		}
+		if(!improved)
+			return 0;
+
+		double cost = 0;
+		VRPRoute route = new VRPRoute();
+		route.add(tour[0]);
+		for(int p=1; p<m; p++){
+			route.add(tour[p]);
+			cost += distances.getDistance(tour[p - 1], tour[p]);
+		}
+		double gain = before - cost;
+		route.setLoad(solution.getLoad(r));
+		route.setCost(cost);
+		solution.setRoute(r, route);
+		solution.setOF(solution.getOF() - gain);
+		return gain;
+	}
+
+	/**
+	 * Tries the 2-opt moves adding an edge between a customer and one of its neighbours, and applies the first improving one
+	 * @param a the customer
+	 * @return true if a move was applied
+	 */
+	private boolean twoOpt(int a){
+		int i = position[a];
+		// a keeps its predecessor (s = 1) or its successor (s = -1): the edge from a to its other side is replaced by (a, c)
+		for(int s=1; s>=-1; s-=2){
+			int b = tour[i + s];
+			double dab = distances.getDistance(a, b);
+			for(int c : neighbors[a]){
+				if(seen[c] != stamp)
+					continue;
+				double dac = distances.getDistance(a, c);
+				if(dac >= dab)
+					break;
+				int j = position[c];
+				int d = tour[j + s];
+				if(c == b || d == a)
+					continue;
+				double gain = dab + distances.getDistance(c, d) - dac - distances.getDistance(b, d);
+				if(gain > EPSILON){
+					if(s == 1){
+						if(i < j)
+							reverse(i + 1, j);
+						else
+							reverse(j + 1, i);
+					}else{
+						if(i < j)
+							reverse(i, j - 1);
+						else
+							reverse(j, i - 1);
+					}
+					push(a, b, c, d);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tries the Or-opt moves of a section starting at a customer next to one of its neighbours, and applies the first
+	 * improving one
+	 * @param a the first customer of the section
+	 * @return true if a move was applied
+	 */
+	private boolean orOpt(int a){
+		int i = position[a];
+		for(int length=1; length<=MAX_SEGMENT && i + length<m; length++){
+			int last = tour[i + length - 1];
+			int prev = tour[i - 1];
+			int next = tour[i + length];
+			double removal = distances.getDistance(prev, a) + distances.getDistance(last, next) - distances.getDistance(prev, next);
+			for(int c : neighbors[a]){
+				if(seen[c] != stamp)
+					continue;
+				double dac = distances.getDistance(a, c);
+				if(dac >= removal)
+					break;
+				int j = position[c];
+				if(j >= i && j < i + length)
+					continue;
+				// c, a, ..., last, v: the section follows c
+				int v = tour[j + 1];
+				if(!(j + 1 >= i && j + 1 < i + length)){
+					double gain = removal - (dac + distances.getDistance(last, v) - distances.getDistance(c, v));
+					if(gain > EPSILON){
+						move(i, length, j, false);
+						push(a, last, prev, next);
+						push(c);
+						push(v);
+						return true;
+					}
+				}
+				// u, last, ..., a, c: the section is reversed and precedes c
+				int u = tour[j - 1];
+				if(!(j - 1 >= i && j - 1 < i + length)){
+					double gain = removal - (dac + distances.getDistance(u, last) - distances.getDistance(u, c));
+					if(gain > EPSILON){
+						move(i, length, j - 1, true);
+						push(a, last, prev, next);
+						push(c);
+						push(u);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reverses the nodes in positions <code>from</code> to <code>to</code> (both inclusive)
+	 */
+	private void reverse(int from, int to){
+		for(; from<to; from++, to--){
+			int node = tour[from];
+			tour[from] = tour[to];
+			tour[to] = node;
+			position[tour[from]] = from;
+			position[tour[to]] = to;
+		}
+		if(from == to)
+			position[tour[from]] = from;
+	}
+
+	/**
+	 * Moves the section of <code>length</code> nodes starting in position <code>from</code> right after the node in
+	 * position <code>after</code> (outside the section)
+	 * @param reversed if true, the section is reversed
+	 */
+	private void move(int from, int length, int after, boolean reversed){
+		for(int k=0; k<length; k++)
+			section[k] = tour[reversed ? from + length - 1 - k : from + k];
+		int lo, hi;
+		if(after < from){
+			System.arraycopy(tour, after + 1, tour, after + 1 + length, from - after - 1);
+			System.arraycopy(section, 0, tour, after + 1, length);
+			lo = after + 1;
+			hi = from + length - 1;
+		}else{
+			System.arraycopy(tour, from + length, tour, from, after - from - length + 1);
+			System.arraycopy(section, 0, tour, after - length + 1, length);
+			lo = from;
+			hi = after;
+		}
+		for(int p=lo; p<=hi; p++)
+			position[tour[p]] = p;
+	}
+
+	/**
+	 * Puts the customers not in the queue at its end
+	 */
+	private void push(int a, int b, int c, int d){
+		push(a);
+		push(b);
+		push(c);
+		push(d);
+	}
+
+	/**
+	 * Puts a customer at the end of the queue if it is not in it (the depot is ignored)
+	 */
+	private void push(int node){
+		if(node == 0 || queued[node])
+			return;
+		queued[node] = true;
+		queue[(head + count) % queue.length] = node;
+		count++;
+	}
+
+	/**
+	 * Copies the nodes it accepts to {@link #tour}, puts the customers in the queue and sums the cost of the route
+	 */
+	private final class Loader implements IntConsumer {
+		/**
+		 * the position of the next node
+		 */
+		private int next;
+		private double cost;
+
+		@Override
+		public void accept(int node){
+			int p = next++;
+			tour[p] = node;
+			if(p > 0)
+				cost += distances.getDistance(tour[p - 1], node);
+			if(p > 0 && p < m - 1){
+				position[node] = p;
+				seen[node] = stamp;
+				push(node);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.polytechtours.vrp.cw;
+
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * A source of savings that sorts the list on demand. The savings are computed up front but left unsorted; each time the
+ * sorted prefix is exhausted, the next chunk of largest savings is selected (quickselect) and sorted. Chunks double in
+ * size, so consuming a fraction of the list costs roughly a proportional fraction of the full sort.</br>
+ * The order is exactly the one of {@link SavingsStore}: descending value, ties broken by ascending source ID and then
+ * ascending target ID. A saving takes 12 bytes, as in the store.
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 22, 2018
+ *
+ */
+public class LazySavings implements ISavingsSource {
+
+	/**
+	 * minimum number of savings sorted by a refill
+	 */
+	private static final int MIN_CHUNK = 1024;
+
+	/**
+	 * id of first node of each saving
+	 */
+	private final int[] sourceIds;
+	/**
+	 * id of second node of each saving
+	 */
+	private final int[] targetIds;
+	/**
+	 * value of each saving
+	 */
+	private final float[] values;
+	/**
+	 * rank of the current saving
+	 */
+	private int position = -1;
+	/**
+	 * end (exclusive) of the sorted prefix of the arrays
+	 */
+	private int sorted = 0;
+	/**
+	 * number of savings to sort on the next refill
+	 */
+	private int chunk;
+
+	/**
+	 * Computes (but does not sort) the savings
+	 * @param distances
+	 */
+	public LazySavings(IDistanceMatrix distances){
+		int n = distances.size();
+		int count = SavingsStore.count(n);
+		this.sourceIds = new int[count];
+		this.targetIds = new int[count];
+		this.values = new float[count];
+		SavingsStore.fill(distances, SavingsStore.depotDistances(distances), values, sourceIds, targetIds, 1, n);
+		this.chunk = Math.max(MIN_CHUNK, count >>> 6);
+	}
+
+	@Override
+	public boolean next(){
+		if(position < values.length)
+			position++;
+		if(position == sorted && sorted < values.length)
+			refill();
+		return position < values.length;
+	}
+
+	@Override
+	public int getSourceId(){
+		return sourceIds[position];
+	}
+
+	@Override
+	public int getTargetId(){
+		return targetIds[position];
+	}
+
+	@Override
+	public float getSaving(){
+		return values[position];
+	}
+
+	@Override
+	public int size(){
+		return values.length;
+	}
+
+	/**
+	 * @return the number of savings sorted so far
+	 */
+	public int getSorted(){
+		return sorted;
+	}
+
+	/**
+	 * Moves the next chunk of largest savings right after the sorted prefix and sorts it
+	 */
+	private void refill(){
+		int end = (int) Math.min((long) sorted + chunk, values.length) - 1;
+		select(sorted, values.length - 1, end);
+		SavingsStore.sort(values, sourceIds, targetIds, sorted, end);
+		sorted = end + 1;
+		chunk = (int) Math.min(2L * chunk, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Rearranges the savings in positions <code>lo</code> to <code>hi</code> (both inclusive) so that the saving in
+	 * position <code>k</code> is the one that would be there after sorting, with only larger savings before it. Like
+	 * {@link SavingsStore#sort(float[], int[], int[], int, int)}, the range is sorted instead once the partitions get
+	 * too deep.
+	 */
+	private void select(int lo, int hi, int k){
+		int depth = SavingsStore.depthLimit(hi - lo + 1);
+		while(hi - lo > 16 && depth-- > 0){
+			int p = SavingsStore.partition(values, sourceIds, targetIds, lo, hi);
+			if(p == k)
+				return;
+			if(k < p)
+				hi = p - 1;
+			else
+				lo = p + 1;
+		}
+		SavingsStore.sort(values, sourceIds, targetIds, lo, hi);
+	}
+
+}
@@ -0,0 +1,324 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a route using a doubly linked list as the underlying data structure. The links of a node are not oriented:
+ * each node simply holds its (up to) two neighbours, and the direction of the route is given by which end is the head.
+ * Reversing the route is therefore a lazy O(1) operation that swaps the head and the tail, and two routes can be
+ * concatenated in O(1) ({@link #append(LinkedRoute)}) whatever their respective directions.</br>
+ * Accessing, inserting or removing the node in position <code>i</code> walks the list from the nearest end, so
+ * operations on the first and last positions (e.g., the customers adjacent to the depot) run in O(1).</br>
+ * Read operations ({@link #get(int)}, {@link #positionOf(int)}, {@link #forEach(IntConsumer)}, ...) do not write to the
+ * route, so several threads can read a route concurrently as long as none modifies it.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 24, 2018
+ *
+ */
+public class LinkedRoute implements IRoute {
+
+	/**
+	 * A node of the list
+	 */
+	private static final class Node {
+		/**
+		 * the ID of the node in the route
+		 */
+		private int id;
+		/**
+		 * the neighbours of the node, in no particular order
+		 */
+		private Node a, b;
+
+		private Node(int id){
+			this.id = id;
+		}
+	}
+
+	/**
+	 * The first node of the route
+	 */
+	private Node head;
+	/**
+	 * The last node of the route
+	 */
+	private Node tail;
+	/**
+	 * The number of nodes in the route
+	 */
+	private int size;
+	/**
+	 * The neighbours (in the direction of the route) of the node returned by the last call to {@link #walk(int, boolean)}
+	 * recording them. Only written by the operations modifying the route.
+	 */
+	private Node walkPrevious, walkNext;
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(int nodeID) {
+		return positionOf(nodeID) >= 0;
+	}
+
+	@Override
+	public void reverse() {
+		Node temp = head;
+		head = tail;
+		tail = temp;
+	}
+
+	@Override
+	public int positionOf(int nodeID) {
+		Node previous = null;
+		Node current = head;
+		for(int i=0; i<size; i++){
+			if(current.id == nodeID)
+				return i;
+			Node next = step(current, previous);
+			previous = current;
+			current = next;
+		}
+		return -1;
+	}
+
+	@Override
+	public int get(int i) {
+		return walk(i, false).id;
+	}
+
+	@Override
+	public void add(int nodeID) {
+		Node node = new Node(nodeID);
+		if(size == 0){
+			head = node;
+		}else{
+			link(tail, node);
+		}
+		tail = node;
+		size++;
+	}
+
+	@Override
+	public void insert(int nodeID, int i) {
+		if(i == size){
+			add(nodeID);
+			return;
+		}
+		Node node = new Node(nodeID);
+		Node current = walk(i, true);
+		Node previous = walkPrevious;
+		if(previous == null){
+			head = node;
+		}else{
+			unlink(previous, current);
+			link(previous, node);
+		}
+		link(node, current);
+		size++;
+	}
+
+	@Override
+	public boolean removeID(int nodeID) {
+		int i = positionOf(nodeID);
+		if(i < 0)
+			return false;
+		remove(i);
+		return true;
+	}
+
+	@Override
+	public int remove(int i) {
+		Node current = walk(i, true);
+		Node previous = walkPrevious;
+		Node next = walkNext;
+		if(previous != null)
+			unlink(previous, current);
+		if(next != null)
+			unlink(current, next);
+		if(previous != null && next != null)
+			link(previous, next);
+		if(previous == null)
+			head = next;
+		if(next == null)
+			tail = previous;
+		size--;
+		return current.id;
+	}
+
+	@Override
+	public void swap(int i, int j) {
+		Node x = walk(i, false);
+		Node y = walk(j, false);
+		int temp = x.id;
+		x.id = y.id;
+		y.id = temp;
+	}
+
+	@Override
+	public void relocate(int i, int j) {
+		if(i < j){
+			insert(get(i), j);
+			remove(i);
+		}else{
+			insert(remove(i), j);
+		}
+	}
+
+	/**
+	 * Appends the nodes of another route at the end of this route in O(1). The nodes are moved, not copied:
+	 * after the call <code>other</code> is empty.
+	 * @param other the route to append
+	 */
+	public void append(LinkedRoute other) {
+		if(other == this)
+			throw new IllegalArgumentException("a route cannot be appended to itself");
+		if(other.size == 0)
+			return;
+		if(size == 0){
+			head = other.head;
+		}else{
+			link(tail, other.head);
+		}
+		tail = other.tail;
+		size += other.size;
+		other.head = null;
+		other.tail = null;
+		other.size = 0;
+	}
+
+	@Override
+	public IRoute clone() {
+		LinkedRoute clone = new LinkedRoute();
+		Node previous = null;
+		Node current = head;
+		for(int i=0; i<size; i++){
+			clone.add(current.id);
+			Node next = step(current, previous);
+			previous = current;
+			current = next;
+		}
+		return clone;
+	}
+
+	@Override
+	public void forEach(IntConsumer action) {
+		Node previous = null;
+		Node current = head;
+		for(int i=0; i<size; i++){
+			action.accept(current.id);
+			Node next = step(current, previous);
+			previous = current;
+			current = next;
+		}
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder();
+		sb.append("[\t");
+		for(Integer i : this.getRoute())
+			sb.append(i + "\t");
+		sb.append("]");
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a hard copy of the list of nodes in the route, built in O(n). If client classes do not really need a copy of the list,
+	 * they should avoid iterating through the route with {@link #get(int)}, which runs in O(n) for inner positions.
+	 */
+	@Override
+	public List<Integer> getRoute() {
+		List<Integer> route = new ArrayList<>(size);
+		Node previous = null;
+		Node current = head;
+		for(int i=0; i<size; i++){
+			route.add(current.id);
+			Node next = step(current, previous);
+			previous = current;
+			current = next;
+		}
+		return route;
+	}
+
+	/**
+	 * Finds the node in position <code>i</code>, walking from the nearest end of the route
+	 * @param i the position
+	 * @param record if true, the neighbours of the node are recorded in {@link #walkPrevious} and {@link #walkNext}; read
+	 * operations must pass false so that they do not write to the route
+	 * @return the node in position <code>i</code>
+	 */
+	private Node walk(int i, boolean record) {
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		Node from = null;
+		Node current;
+		if(i < size - i){
+			current = head;
+			for(int k=0; k<i; k++){
+				Node next = step(current, from);
+				from = current;
+				current = next;
+			}
+			if(record){
+				walkPrevious = from;
+				walkNext = step(current, from);
+			}
+		}else{
+			current = tail;
+			for(int k=size - 1; k>i; k--){
+				Node next = step(current, from);
+				from = current;
+				current = next;
+			}
+			if(record){
+				walkNext = from;
+				walkPrevious = step(current, from);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * @param current a node
+	 * @param from the neighbour of <code>current</code> we come from (<code>null</code> at the ends of the route)
+	 * @return the other neighbour of <code>current</code>
+	 */
+	private static Node step(Node current, Node from) {
+		return current.a != from ? current.a : current.b;
+	}
+
+	/**
+	 * Links two nodes using a free neighbour slot in each of them
+	 */
+	private static void link(Node x, Node y) {
+		if(x.a == null)
+			x.a = y;
+		else
+			x.b = y;
+		if(y.a == null)
+			y.a = x;
+		else
+			y.b = x;
+	}
+
+	/**
+	 * Removes the link between two neighbour nodes
+	 */
+	private static void unlink(Node x, Node y) {
+		if(x.a == y)
+			x.a = null;
+		else
+			x.b = null;
+		if(y.a == x)
+			y.a = null;
+		else
+			y.b = null;
+	}
+
+}
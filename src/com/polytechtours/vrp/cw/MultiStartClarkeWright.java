@@ -0,0 +1,345 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * Biased-randomised multi-start {@link ClarkeWright}: each start processes the savings in the order of a
+ * {@link BiasedSavings} with its own &beta;, and the best solution is kept.</br>
+ * The starts are numbered and run by a fixed pool of threads that take the next number until all are done. Start
+ * <code>k</code> draws its &beta; and the savings order from a generator seeded by the master seed and <code>k</code>
+ * only, and ties between objective functions are broken by the smallest start number, so the result for a given master
+ * seed does not depend on the number of threads. Start 0 processes the savings in order (plain {@link ClarkeWright}),
+ * so the multi-start is never worse.</br>
+ * All the starts share one sorted {@link SavingsStore} (and the distance matrix and demands, which must support
+ * concurrent reads); a start only holds its solution and a small window of savings. The best solution is published
+ * through an {@link AtomicReference} without locking.</br>
+ * A wall-clock budget abandons every start but start 0 once it is spent, whether it is running or not; the result is
+ * then only reproducible up to the starts completed. Interrupting the calling thread abandons every start. The first
+ * failure of a start is rethrown by {@link #run()}.
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class MultiStartClarkeWright implements IOptimizationAlgorithm {
+
+	/**
+	 * Number of savings between two checks of the budget in the merge loop
+	 */
+	private static final int CHECK_INTERVAL = 4096;
+
+	/**
+	 * matrix of distances
+	 */
+	private final IDistanceMatrix distances;
+	/**
+	 * array of demands
+	 */
+	private final IDemands demands;
+	/**
+	 * capacity of car
+	 */
+	private final double Q;
+	/**
+	 * the sorted savings shared by the starts
+	 */
+	private final SavingsStore savings;
+	/**
+	 * number of starts
+	 */
+	private int starts = 1000;
+	/**
+	 * smallest &beta; of a start
+	 */
+	private double betaMin = 0.1;
+	/**
+	 * largest &beta; of a start
+	 */
+	private double betaMax = 0.3;
+	/**
+	 * master seed
+	 */
+	private long seed;
+	/**
+	 * number of threads running the starts
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+	/**
+	 * wall-clock budget, in milliseconds (no limit if not positive)
+	 */
+	private long timeLimit;
+	/**
+	 * number of starts completed by the last call to {@link #run()}
+	 */
+	private int completed;
+	/**
+	 * number of the start of the best solution of the last call to {@link #run()}
+	 */
+	private int bestStart;
+
+	/**
+	 * constructor with matrix of distances, demands, the capacity and the sorted savings (e.g., built by
+	 * {@link SavingsStore#calc(IDistanceMatrix)}), with 1000 starts of &beta; in [0.1, 0.3], master seed 0 and one
+	 * thread per core
+	 * @param distances
+	 * @param demands
+	 * @param Q
+	 * @param savings
+	 */
+	public MultiStartClarkeWright(IDistanceMatrix distances, IDemands demands, double Q, SavingsStore savings){
+		this.distances = distances;
+		this.demands = demands;
+		this.Q = Q;
+		this.savings = savings;
+	}
+
+	public void setStarts(int starts){
+		if(starts < 1)
+			throw new IllegalArgumentException("argument starts must be positive (passed " + starts + ")");
+		this.starts = starts;
+	}
+
+	/**
+	 * Sets the range of &beta;; the &beta; of each start is uniformly distributed in it
+	 * @param betaMin the smallest &beta;, in (0, 1]
+	 * @param betaMax the largest &beta;, in [betaMin, 1]
+	 */
+	public void setBeta(double betaMin, double betaMax){
+		if(!(betaMin > 0 && betaMin <= betaMax && betaMax <= 1))
+			throw new IllegalArgumentException("invalid range of beta [" + betaMin + ", " + betaMax + "]");
+		this.betaMin = betaMin;
+		this.betaMax = betaMax;
+	}
+
+	public void setSeed(long seed){
+		this.seed = seed;
+	}
+
+	public void setThreads(int threads){
+		if(threads < 1)
+			throw new IllegalArgumentException("argument threads must be positive (passed " + threads + ")");
+		this.threads = threads;
+	}
+
+	/**
+	 * @param timeLimit the wall-clock budget, in milliseconds; every start but start 0 is abandoned once it is spent (no
+	 * limit if not positive)
+	 */
+	public void setTimeLimit(long timeLimit){
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return the number of starts completed by the last call to {@link #run()}
+	 */
+	public int getCompleted(){
+		return completed;
+	}
+
+	/**
+	 * @return the number of the start of the best solution found by the last call to {@link #run()}
+	 */
+	public int getBestStart(){
+		return bestStart;
+	}
+
+	@Override
+	public ISolution run(){
+		completed = 0;
+		bestStart = 0;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeLimit));
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger done = new AtomicInteger();
+		AtomicReference<Candidate> best = new AtomicReference<>();
+		Runnable worker = () -> {
+			for(int k=next.getAndIncrement(); k<starts; k=next.getAndIncrement()){
+				if(Thread.currentThread().isInterrupted() || k > 0 && expired(deadline))
+					return;
+				VRPSolution solution;
+				try{
+					solution = start(k, deadline);
+				}catch(Expired e){
+					return;
+				}
+				offer(best, new Candidate(solution, k));
+				done.incrementAndGet();
+			}
+		};
+
+		int workers = Math.min(threads, starts);
+		if(workers == 1){
+			worker.run();
+			return result(best, done);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Future<?>> futures = new ArrayList<>();
+		for(int t=0; t<workers; t++)
+			futures.add(executor.submit(worker));
+		executor.shutdown();
+		try{
+			for(Future<?> future : futures)
+				future.get();
+		}catch(ExecutionException e){
+			stop(executor);
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}catch(InterruptedException e){
+			stop(executor);
+			Thread.currentThread().interrupt();
+		}
+		return result(best, done);
+	}
+
+	/**
+	 * Runs a start. Every start but start 0 is abandoned as soon as the budget is spent; every start is abandoned if
+	 * the thread is interrupted.
+	 * @param k the number of the start
+	 * @param deadline the end of the budget, in the time of {@link System#nanoTime()}
+	 * @return the solution of the start
+	 * @throws Expired if the start is abandoned
+	 */
+	private VRPSolution start(int k, long deadline){
+		ClarkeWright cw;
+		if(k == 0){
+			cw = new ClarkeWright(distances, demands, Q, savings);
+		}else{
+			Random random = new Random(mix(seed, k));
+			double beta = betaMin + (betaMax - betaMin) * random.nextDouble();
+			cw = new ClarkeWright(distances, demands, Q, new BiasedSavings(savings, beta, random));
+		}
+		cw.setListener(new Deadline(k > 0, deadline));
+		return (VRPSolution) cw.run();
+	}
+
+	/**
+	 * @param deadline the end of the budget, in the time of {@link System#nanoTime()}
+	 * @return true if there is a budget and it is spent
+	 */
+	private boolean expired(long deadline){
+		return timeLimit > 0 && System.nanoTime() - deadline >= 0;
+	}
+
+	/**
+	 * Records the outcome of a run
+	 * @return the best solution
+	 * @throws IllegalStateException if no start completed
+	 */
+	private VRPSolution result(AtomicReference<Candidate> best, AtomicInteger done){
+		completed = done.get();
+		Candidate candidate = best.get();
+		if(candidate == null)
+			throw new IllegalStateException("no start of the multi-start completed");
+		bestStart = candidate.start;
+		return candidate.solution;
+	}
+
+	/**
+	 * Interrupts the running starts and waits until the threads are done, so that no start publishes a solution
+	 * afterwards
+	 */
+	private static void stop(ExecutorService executor){
+		executor.shutdownNow();
+		boolean interrupted = false;
+		while(true){
+			try{
+				if(executor.awaitTermination(1, TimeUnit.MINUTES))
+					break;
+			}catch(InterruptedException e){
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Publishes a candidate if it is better than the best one, or as good and from an earlier start
+	 */
+	private static void offer(AtomicReference<Candidate> best, Candidate candidate){
+		Candidate current = best.get();
+		while(current == null || candidate.isBetterThan(current)){
+			if(best.compareAndSet(current, candidate))
+				return;
+			current = best.get();
+		}
+	}
+
+	/**
+	 * @return the seed of start <code>k</code>, decorrelated from the seeds of the other starts
+	 */
+	private static long mix(long seed, int k){
+		long z = seed + (k + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Abandons the merge loop of a start when the budget is spent or the thread is interrupted. Both are checked every
+	 * {@link #CHECK_INTERVAL} savings, so that the check costs nothing next to the loop.
+	 */
+	private final class Deadline implements ISolverListener {
+		/**
+		 * true if the start is abandoned when the budget is spent
+		 */
+		private final boolean limited;
+		private final long deadline;
+		private int examined;
+
+		private Deadline(boolean limited, long deadline){
+			this.limited = limited;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void savingExamined(int sourceId, int targetId){
+			if(++examined % CHECK_INTERVAL == 0 && (Thread.currentThread().isInterrupted() || limited && expired(deadline)))
+				throw new Expired();
+		}
+	}
+
+	/**
+	 * Thrown by {@link Deadline} to abandon a start
+	 */
+	@SuppressWarnings("serial")
+	private static final class Expired extends RuntimeException {
+		private Expired(){
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * The solution of a start
+	 */
+	private static final class Candidate {
+		private final VRPSolution solution;
+		private final int start;
+
+		private Candidate(VRPSolution solution, int start){
+			this.solution = solution;
+			this.start = start;
+		}
+
+		private boolean isBetterThan(Candidate other){
+			return solution.getOF() < other.solution.getOF() || (solution.getOF() == other.solution.getOF() && start < other.start);
+		}
+	}
+
+}
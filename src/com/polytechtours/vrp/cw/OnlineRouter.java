@@ -0,0 +1,674 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+import com.polytechtours.vrp.data.ArrayDemands;
+import com.polytechtours.vrp.data.ArrayDistanceMatrix;
+import com.polytechtours.vrp.data.GrowableDemands;
+import com.polytechtours.vrp.data.GrowableDistanceMatrix;
+
+/**
+ * Keeps a live {@link VRPSolution} up to date with a stream of orders: customers are added and removed one event at
+ * a time, and a background thread re-optimises the part of the plan around each change.</br>
+ * <ul>
+ * <li>An added customer is appended to the {@link GrowableDistanceMatrix} and the {@link GrowableDemands} (a new row
+ * of distances, O(n)) and inserted at its cheapest feasible position: the edge of a route with enough spare capacity
+ * whose detour is the smallest, or a new route if that is cheaper. Every route edge is scanned once, in O(n).</li>
+ * <li>A removed customer is taken out of its route, whose predecessor and successor are joined; a route left empty is
+ * removed and the last route takes its position. Its ID is not reused.</li>
+ * <li>Each change marks a customer next to it as dirty. The background thread takes the dirty customers in order and
+ * re-merges their region: the route of the customer and the routes nearest to it, up to {@link #setRegionSize(int)
+ * a given number of customers}, are solved again by {@link ClarkeWright} on a copy of their distances and demands, and
+ * replace the current routes if they are cheaper. The routes and demands of the region are copied, and the result
+ * committed, holding the lock of the router; the distances are copied and {@link ClarkeWright} runs without it, so
+ * events are not blocked meanwhile. A region that was changed by an
+ * event in the meantime is not committed (a conflict): the event marked its own dirty customer.</li>
+ * </ul>
+ * With n customers, R routes and regions of s customers (at most {@link #setRegionSize(int) the region size}, or the
+ * size of the route of the dirty customer if it is larger), the lock of the router is held:
+ * <ul>
+ * <li>by an addition, for O(n) steps (the new row of distances and the scan of the routes);</li>
+ * <li>by a removal, for O(m) steps, m being the length of the route of the customer and of the last route;</li>
+ * <li>by the capture of a region, for O(n) steps: the nearest customer of each route is found by scanning every route,
+ * and the routes are taken nearest first from a binary heap built in O(R). The O(s&sup2;) distances of the region are
+ * copied after the lock is released (see {@link GrowableDistanceMatrix});</li>
+ * <li>by a commit, for O(s + m) steps: the new routes take the positions of the old ones, and the routes left over are
+ * replaced by the last routes, so no other route is shifted in the node index.</li>
+ * </ul>
+ * The latency of an event (from the call to the updated plan) is therefore its own work plus, at worst, one capture or
+ * one commit it waits for. The latencies of the last {@value #LATENCY_WINDOW} events are kept, and
+ * {@link #getLatency(double)} returns their quantiles (e.g., p99).</br>
+ * A re-merge that fails (e.g., for lack of memory) is not committed; it is counted by {@link #getFailures()} and
+ * thrown by the next call to {@link #awaitIdle()}, and the background thread goes on with the next dirty customer.</br>
+ * The solution, the distances and the demands are owned by the router once it is constructed: they are modified by
+ * the events and by the background thread, and must only be read through {@link #getSolution()} or holding the lock
+ * of the router (the background thread reads the distances of the customers already added without it).
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class OnlineRouter implements AutoCloseable {
+
+	/**
+	 * smallest gain of a re-merge committed, so that rounding errors cannot make the plan cycle
+	 */
+	private static final double EPSILON = 1e-9;
+	/**
+	 * number of latencies kept
+	 */
+	private static final int LATENCY_WINDOW = 10000;
+
+	/**
+	 * matrix of distances, growing with the customers
+	 */
+	private final GrowableDistanceMatrix distances;
+	/**
+	 * array of demands, growing with the customers
+	 */
+	private final GrowableDemands demands;
+	/**
+	 * capacity of car
+	 */
+	private final double Q;
+	/**
+	 * the live solution
+	 */
+	private final VRPSolution solution;
+	/**
+	 * the dirty customers, in the order in which they were marked
+	 */
+	private final ArrayDeque<Integer> dirty = new ArrayDeque<>();
+	/**
+	 * the customers in {@link #dirty}
+	 */
+	private final BitSet pending = new BitSet();
+	/**
+	 * the thread re-merging the regions of the dirty customers
+	 */
+	private final Thread worker;
+	/**
+	 * reusable action finding the cheapest insertion in a route
+	 */
+	private final Insertion insertion = new Insertion();
+	/**
+	 * largest number of customers of a region
+	 */
+	private int regionSize = 100;
+	/**
+	 * true while the background thread is re-merging a region
+	 */
+	private boolean busy;
+	/**
+	 * true once {@link #close()} has been called
+	 */
+	private boolean closed;
+	/**
+	 * latencies of the last events, in nanoseconds, in a circular buffer
+	 */
+	private final long[] latencies = new long[LATENCY_WINDOW];
+	/**
+	 * number of events
+	 */
+	private long events;
+	/**
+	 * number of regions re-merged, committed, and not committed because they had changed
+	 */
+	private long remerges, commits, conflicts;
+	/**
+	 * total gain of the committed re-merges
+	 */
+	private double remergeGain;
+	/**
+	 * number of re-merges that failed
+	 */
+	private long failures;
+	/**
+	 * the failure of the last re-merge that failed since the last call to {@link #awaitIdle()}, if any
+	 */
+	private Throwable failure;
+	/**
+	 * reusable action copying the nodes of a route
+	 */
+	private final Copy copy = new Copy();
+
+	/**
+	 * Constructs a router and starts its background thread
+	 * @param distances the distances between the depot (node 0) and the customers
+	 * @param demands the demands of the customers
+	 * @param Q the capacity
+	 * @param solution a solution visiting some of the customers (e.g., built by {@link ClarkeWright}), possibly none;
+	 * modified in place
+	 */
+	public OnlineRouter(GrowableDistanceMatrix distances, GrowableDemands demands, double Q, VRPSolution solution){
+		this.distances = distances;
+		this.demands = demands;
+		this.Q = Q;
+		this.solution = solution;
+		if(solution.size() == 0 || Double.isNaN(solution.getOF()))
+			solution.setOF(0);
+		this.worker = new Thread(this::work, "online-router");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * @param regionSize the largest number of customers of a region re-merged by the background thread
+	 */
+	public synchronized void setRegionSize(int regionSize){
+		if(regionSize < 1)
+			throw new IllegalArgumentException("argument regionSize must be positive (passed " + regionSize + ")");
+		this.regionSize = regionSize;
+	}
+
+	/**
+	 * Adds a customer and inserts it at its cheapest feasible position
+	 * @param x the coordinate of the customer on the x axis
+	 * @param y the coordinate of the customer on the y axis
+	 * @param demand the demand of the customer
+	 * @return the ID of the customer
+	 * @throws IllegalArgumentException if the demand exceeds the capacity
+	 */
+	public int addCustomer(double x, double y, double demand){
+		long start = System.nanoTime();
+		if(demand > Q)
+			throw new IllegalArgumentException("the demand " + demand + " exceeds the capacity " + Q);
+		synchronized(this){
+			int node = distances.add(x, y);
+			demands.add(demand);
+
+			// a new route unless an insertion is cheaper
+			insertion.node = node;
+			insertion.bestCost = 2 * distances.getDistance(0, node);
+			insertion.bestRoute = -1;
+			for(int r=0; r<solution.size(); r++){
+				if(solution.getLoad(r) + demand > Q)
+					continue;
+				insertion.route = r;
+				insertion.position = 0;
+				insertion.previous = -1;
+				solution.getRouteView(r).forEach(insertion);
+			}
+			if(insertion.bestRoute < 0){
+				VRPRoute route = new VRPRoute();
+				route.add(0);
+				route.add(node);
+				route.add(0);
+				route.setLoad(demand);
+				route.setCost(insertion.bestCost);
+				solution.insertRoute(route, solution.size());
+			}else{
+				int r = insertion.bestRoute;
+				solution.insert(node, r, insertion.bestPosition);
+				solution.setLoad(r, solution.getLoad(r) + demand);
+				solution.setCost(r, solution.getCost(r) + insertion.bestCost);
+			}
+			solution.setOF(solution.getOF() + insertion.bestCost);
+			mark(node);
+			record(start);
+			return node;
+		}
+	}
+
+	/**
+	 * Removes a customer from the plan
+	 * @param node the ID of the customer
+	 * @throws IllegalArgumentException if the customer is not in the plan
+	 */
+	public void removeCustomer(int node){
+		long start = System.nanoTime();
+		synchronized(this){
+			if(node <= 0 || !solution.containsNode(node))
+				throw new IllegalArgumentException("customer " + node + " is not in the plan");
+			int r = solution.getRouteIdByNodeId(node);
+			int p = solution.getRouteView(r).positionOf(node);
+			int previous = solution.getNode(r, p - 1);
+			int next = solution.getNode(r, p + 1);
+			double saving = distances.getDistance(previous, node) + distances.getDistance(node, next) - distances.getDistance(previous, next);
+			solution.remove(r, p);
+			solution.setOF(solution.getOF() - saving);
+			if(solution.size(r) <= 2){
+				solution.setOF(solution.getOF() - solution.getCost(r) + saving);
+				solution.swapRemove(r);
+			}else{
+				solution.setLoad(r, solution.getLoad(r) - demands.getDemand(node));
+				solution.setCost(r, solution.getCost(r) - saving);
+				mark(previous != 0 ? previous : next);
+			}
+			record(start);
+		}
+	}
+
+	/**
+	 * @return a copy of the current plan
+	 */
+	public synchronized VRPSolution getSolution(){
+		return (VRPSolution) solution.clone();
+	}
+
+	/**
+	 * Waits until every dirty customer has been processed by the background thread
+	 * @throws InterruptedException if the current thread is interrupted while waiting
+	 * @throws IllegalStateException if a re-merge failed since the last call, with the last failure as cause; the
+	 * failed re-merges were not committed, and the other dirty customers were processed
+	 */
+	public synchronized void awaitIdle() throws InterruptedException{
+		while((!dirty.isEmpty() || busy) && !closed)
+			wait();
+		if(failure != null){
+			Throwable cause = failure;
+			failure = null;
+			throw new IllegalStateException("a re-merge failed (" + failures + " failures so far)", cause);
+		}
+	}
+
+	/**
+	 * Returns a quantile of the latencies of the last {@value #LATENCY_WINDOW} events
+	 * @param quantile the quantile, in [0, 1] (e.g., 0.99 for p99)
+	 * @return the latency, in nanoseconds, 0 if there was no event
+	 */
+	public synchronized long getLatency(double quantile){
+		int n = (int) Math.min(events, LATENCY_WINDOW);
+		if(n == 0)
+			return 0;
+		long[] sorted = Arrays.copyOf(latencies, n);
+		Arrays.sort(sorted);
+		return sorted[Math.max(0, (int) Math.ceil(quantile * n) - 1)];
+	}
+
+	/**
+	 * @return the number of events
+	 */
+	public synchronized long getEvents(){
+		return events;
+	}
+
+	/**
+	 * @return the number of regions re-merged by the background thread
+	 */
+	public synchronized long getRemerges(){
+		return remerges;
+	}
+
+	/**
+	 * @return the number of re-merges committed
+	 */
+	public synchronized long getCommits(){
+		return commits;
+	}
+
+	/**
+	 * @return the number of improving re-merges not committed because their region changed while they ran
+	 */
+	public synchronized long getConflicts(){
+		return conflicts;
+	}
+
+	/**
+	 * @return the total gain of the committed re-merges
+	 */
+	public synchronized double getRemergeGain(){
+		return remergeGain;
+	}
+
+	/**
+	 * @return the number of re-merges that failed (and were not committed)
+	 */
+	public synchronized long getFailures(){
+		return failures;
+	}
+
+	/**
+	 * Stops the background thread; the dirty customers left are not processed
+	 */
+	@Override
+	public void close(){
+		synchronized(this){
+			closed = true;
+			notifyAll();
+		}
+		try{
+			worker.join();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Marks a customer as dirty, unless it already is. Must hold the lock.
+	 */
+	private void mark(int node){
+		if(pending.get(node))
+			return;
+		pending.set(node);
+		dirty.add(node);
+		notifyAll();
+	}
+
+	/**
+	 * Records the latency of an event started at <code>start</code>. Must hold the lock.
+	 */
+	private void record(long start){
+		latencies[(int) (events++ % LATENCY_WINDOW)] = System.nanoTime() - start;
+	}
+
+	/**
+	 * Body of the background thread. A re-merge that fails is counted and reported by {@link #awaitIdle()}, and the
+	 * thread goes on with the next dirty customer; if the thread stops for any other reason, the router is closed so
+	 * that {@link #awaitIdle()} does not wait for it.
+	 */
+	private void work(){
+		try{
+			while(true){
+				int seed;
+				synchronized(this){
+					busy = false;
+					while(dirty.isEmpty() && !closed){
+						notifyAll();
+						try{
+							wait();
+						}catch(InterruptedException e){
+							return;
+						}
+					}
+					if(closed)
+						return;
+					seed = dirty.poll();
+					pending.clear(seed);
+					busy = true;
+				}
+				try{
+					remerge(seed);
+				}catch(RuntimeException | OutOfMemoryError e){
+					synchronized(this){
+						failures++;
+						failure = e;
+					}
+				}
+			}
+		}finally{
+			synchronized(this){
+				busy = false;
+				closed = true;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Re-merges the region of a dirty customer and commits it if it is cheaper
+	 * @param seed the customer
+	 */
+	private void remerge(int seed){
+		Region region;
+		synchronized(this){
+			if(!solution.containsNode(seed))
+				return;
+			region = capture(seed);
+		}
+		region.copyDistances(distances);
+		VRPSolution merged = (VRPSolution) new ClarkeWright(region.distances, region.demands, Q).run();
+		synchronized(this){
+			remerges++;
+			if(merged.getOF() < region.cost - EPSILON){
+				if(commit(region, merged)){
+					commits++;
+					remergeGain += region.cost - merged.getOF();
+				}else{
+					conflicts++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the region of a customer: its route and the routes nearest to it, by the distance from the customer to
+	 * their nearest customer, up to {@link #regionSize} customers. Its distances are copied afterwards, without the
+	 * lock (see {@link Region#copyDistances(GrowableDistanceMatrix)}). Must hold the lock.
+	 * @param seed the customer
+	 * @return the region
+	 */
+	private Region capture(int seed){
+		int routes = solution.size();
+		double[] nearest = new double[routes];
+		int[] heap = new int[routes];
+		Nearest scan = new Nearest(seed);
+		for(int r=0; r<routes; r++){
+			scan.distance = Double.POSITIVE_INFINITY;
+			solution.getRouteView(r).forEach(scan);
+			nearest[r] = scan.distance;
+			heap[r] = r;
+		}
+		// the routes are taken nearest first from a binary heap, so only the routes of the region are ordered
+		for(int k=routes / 2 - 1; k>=0; k--)
+			siftDown(heap, routes, k, nearest);
+
+		Region region = new Region();
+		int[][] captured = new int[routes][];
+		int chosen = 0, customers = 0;
+		for(int left=routes; left>0; ){
+			int r = heap[0];
+			int size = solution.size(r) - 2;
+			if(chosen > 0 && customers + size > regionSize)
+				break;
+			captured[chosen++] = nodes(r);
+			customers += size;
+			region.cost += solution.getCost(r);
+			heap[0] = heap[--left];
+			siftDown(heap, left, 0, nearest);
+		}
+		region.routes = Arrays.copyOf(captured, chosen);
+
+		// local node i + 1 is customers[i], the depot stays node 0
+		region.customers = new int[customers + 1];
+		int i = 1;
+		for(int[] route : region.routes)
+			for(int node : route)
+				if(node != 0)
+					region.customers[i++] = node;
+		region.demands = new ArrayDemands(customers + 1);
+		for(int a=1; a<=customers; a++)
+			region.demands.setDemand(a, demands.getDemand(region.customers[a]));
+		return region;
+	}
+
+	/**
+	 * Replaces the routes of a region by the routes of its re-merge, unless one of them has changed. The new routes
+	 * take the positions of the old ones, extra routes are added at the end and extra positions are filled by the last
+	 * routes (see {@link VRPSolution#swapRemove(int)}), so that no other route is shifted. Must hold the lock.
+	 * @return true if the re-merge was committed
+	 */
+	private boolean commit(Region region, VRPSolution merged){
+		int[] indices = new int[region.routes.length];
+		for(int k=0; k<region.routes.length; k++){
+			int[] route = region.routes[k];
+			int r = solution.getRouteIdByNodeId(route[1]);
+			if(r < 0 || !same(route, r))
+				return false;
+			indices[k] = r;
+		}
+		Arrays.sort(indices);
+		int k = 0;
+		for(; k<merged.size(); k++){
+			VRPRoute route = new VRPRoute();
+			merged.getRouteView(k).forEach(node -> route.add(region.customers[node]));
+			route.setLoad(merged.getLoad(k));
+			route.setCost(merged.getCost(k));
+			if(k < indices.length)
+				solution.setRoute(indices[k], route);
+			else
+				solution.insertRoute(route, solution.size());
+		}
+		// from the largest position, so that the last route is never a route still to remove
+		for(int j=indices.length - 1; j>=k; j--)
+			solution.swapRemove(indices[j]);
+		solution.setOF(solution.getOF() - region.cost + merged.getOF());
+		return true;
+	}
+
+	/**
+	 * @return the nodes of route <code>r</code>
+	 */
+	private int[] nodes(int r){
+		copy.nodes = new int[solution.size(r)];
+		copy.position = 0;
+		copy.check = false;
+		solution.getRouteView(r).forEach(copy);
+		return copy.nodes;
+	}
+
+	/**
+	 * @return true if route <code>r</code> visits the nodes of <code>route</code>, in the same order
+	 */
+	private boolean same(int[] route, int r){
+		if(solution.size(r) != route.length)
+			return false;
+		copy.nodes = route;
+		copy.position = 0;
+		copy.check = true;
+		copy.same = true;
+		solution.getRouteView(r).forEach(copy);
+		return copy.same;
+	}
+
+	/**
+	 * Restores the heap order of the subtree rooted in position <code>k</code>: a route is above another if it is
+	 * nearer, or as near and of a smaller index
+	 * @param heap the routes
+	 * @param size the number of routes in the heap
+	 * @param nearest the distance of each route
+	 */
+	private static void siftDown(int[] heap, int size, int k, double[] nearest){
+		int r = heap[k];
+		while(2 * k + 1 < size){
+			int child = 2 * k + 1;
+			if(child + 1 < size && before(heap[child + 1], heap[child], nearest))
+				child++;
+			if(!before(heap[child], r, nearest))
+				break;
+			heap[k] = heap[child];
+			k = child;
+		}
+		heap[k] = r;
+	}
+
+	/**
+	 * @return true if route <code>a</code> is nearer than route <code>b</code>, or as near and of a smaller index
+	 */
+	private static boolean before(int a, int b, double[] nearest){
+		int c = Double.compare(nearest[a], nearest[b]);
+		return c < 0 || c == 0 && a < b;
+	}
+
+	/**
+	 * A region copied for a re-merge
+	 */
+	private static final class Region {
+		/**
+		 * the nodes of the routes of the region, as they were copied
+		 */
+		private int[][] routes;
+		/**
+		 * the customers of the region, indexed by local node ID
+		 */
+		private int[] customers;
+		/**
+		 * the total cost of the routes of the region
+		 */
+		private double cost;
+		private ArrayDistanceMatrix distances;
+		private ArrayDemands demands;
+
+		/**
+		 * Copies the distances between the nodes of the region. Needs not hold the lock of the router: the customers of
+		 * the region were added before it was captured, and their distances can be read while other customers are added.
+		 */
+		private void copyDistances(GrowableDistanceMatrix source){
+			distances = new ArrayDistanceMatrix(customers.length);
+			for(int a=0; a<customers.length; a++){
+				for(int b=0; b<a; b++){
+					double distance = source.getDistance(customers[a], customers[b]);
+					distances.setDistance(a, b, distance);
+					distances.setDistance(b, a, distance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scans the nodes of a route and keeps its cheapest insertion of {@link #node} if it is the cheapest found so far
+	 */
+	private final class Insertion implements IntConsumer {
+		private int node;
+		/**
+		 * the route scanned, the position of the next node and the previous node (-1 for the first node)
+		 */
+		private int route, position, previous;
+		/**
+		 * the cheapest insertion found so far: route (-1 for a new route), position and cost
+		 */
+		private int bestRoute, bestPosition;
+		private double bestCost;
+
+		@Override
+		public void accept(int next){
+			if(previous >= 0){
+				double cost = distances.getDistance(previous, node) + distances.getDistance(node, next) - distances.getDistance(previous, next);
+				if(cost < bestCost){
+					bestCost = cost;
+					bestRoute = route;
+					bestPosition = position;
+				}
+			}
+			previous = next;
+			position++;
+		}
+	}
+
+	/**
+	 * Scans the nodes of a route for the customer nearest to {@link #seed}
+	 */
+	private final class Nearest implements IntConsumer {
+		private final int seed;
+		private double distance;
+
+		private Nearest(int seed){
+			this.seed = seed;
+		}
+
+		@Override
+		public void accept(int node){
+			if(node != 0)
+				distance = Math.min(distance, distances.getDistance(seed, node));
+		}
+	}
+
+	/**
+	 * Copies the nodes of a route to {@link #nodes}, or compares them with it
+	 */
+	private static final class Copy implements IntConsumer {
+		private int[] nodes;
+		private int position;
+		/**
+		 * true to compare the nodes instead of copying them
+		 */
+		private boolean check;
+		/**
+		 * false once a node differs
+		 */
+		private boolean same;
+
+		@Override
+		public void accept(int node){
+			if(check)
+				same &= nodes[position++] == node;
+			else
+				nodes[position++] = node;
+		}
+	}
+
+}
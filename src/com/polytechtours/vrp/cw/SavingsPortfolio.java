@@ -0,0 +1,381 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * Runs {@link ClarkeWright} on the parametric savings of a grid of parameters (&lambda;, &mu;, &nu;) (see
+ * {@link SavingsStore#calc(IDistanceMatrix, IDemands, double, double, double)}) and keeps the best solution.</br>
+ * The runs are spread over a fixed pool of threads. They all read the same distance matrix and demands, which must
+ * therefore support concurrent reads, and share the distances to the depot and the demand terms, computed once. Each
+ * running thread builds its own savings list (12 bytes per pair of nodes), so memory grows with the number of threads,
+ * not with the size of the grid; the number of concurrent runs is capped so that their savings fit in a memory budget
+ * (80% of the maximum heap by default).</br>
+ * The plain savings (&lambda; = 1, &mu; = 0, &nu; = 0) are always run first and to the end, so the portfolio is never
+ * worse than {@link ClarkeWright}. A wall-clock budget abandons the other runs once it is spent: no run is started, and
+ * the running ones stop at their next check. The failure of a run is thrown by {@link #run()} once the other runs are
+ * stopped, and no thread touches the portfolio after {@link #run()} returns. Ties between objective functions are
+ * broken by the order of the grid, so the result does not depend on the scheduling of the threads when the budget is
+ * not reached.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class SavingsPortfolio implements IOptimizationAlgorithm {
+
+	/**
+	 * Default values of &lambda;: 0.1 to 2 by steps of 0.1
+	 */
+	private static final double[] DEFAULT_LAMBDAS = range(0.1, 2.0, 0.1);
+	/**
+	 * Default values of &mu;: 0 to 2 by steps of 0.5
+	 */
+	private static final double[] DEFAULT_MUS = range(0.0, 2.0, 0.5);
+	/**
+	 * Default values of &nu;: 0 to 1 by steps of 0.5
+	 */
+	private static final double[] DEFAULT_NUS = range(0.0, 1.0, 0.5);
+	/**
+	 * Estimated number of bytes of heap per pair of nodes held by a run: its sorted savings
+	 */
+	private static final long BYTES_PER_PAIR = SavingsStore.BYTES_PER_SAVING;
+	/**
+	 * Number of savings between two checks of the budget in the merge loop
+	 */
+	private static final int CHECK_INTERVAL = 4096;
+
+	/**
+	 * matrix of distances
+	 */
+	private final IDistanceMatrix distances;
+	/**
+	 * array of demands
+	 */
+	private final IDemands demands;
+	/**
+	 * capacity of car
+	 */
+	private final double Q;
+	/**
+	 * values of &lambda; of the grid
+	 */
+	private double[] lambdas = DEFAULT_LAMBDAS;
+	/**
+	 * values of &mu; of the grid
+	 */
+	private double[] mus = DEFAULT_MUS;
+	/**
+	 * values of &nu; of the grid
+	 */
+	private double[] nus = DEFAULT_NUS;
+	/**
+	 * number of threads running the grid
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+	/**
+	 * heap the concurrent runs can use, in bytes
+	 */
+	private long memoryBudget = Runtime.getRuntime().maxMemory()/10*8;
+	/**
+	 * wall-clock budget, in milliseconds (no limit if not positive)
+	 */
+	private long timeLimit;
+	/**
+	 * best solution found by the last call to {@link #run()}
+	 */
+	private VRPSolution best;
+	/**
+	 * position in the grid of the best solution
+	 */
+	private int bestIndex;
+	/**
+	 * number of runs completed by the last call to {@link #run()}
+	 */
+	private int runs;
+
+	/**
+	 * Constructs a portfolio on the default grid, with one thread per core and no time limit
+	 * @param distances
+	 * @param demands
+	 * @param Q
+	 */
+	public SavingsPortfolio(IDistanceMatrix distances, IDemands demands, double Q){
+		this.distances = distances;
+		this.demands = demands;
+		this.Q = Q;
+	}
+
+	/**
+	 * Sets the grid of parameters; every combination is run
+	 * @param lambdas the values of &lambda;
+	 * @param mus the values of &mu;
+	 * @param nus the values of &nu;
+	 */
+	public void setGrid(double[] lambdas, double[] mus, double[] nus){
+		if(lambdas.length == 0 || mus.length == 0 || nus.length == 0)
+			throw new IllegalArgumentException("the grid must not be empty");
+		this.lambdas = lambdas.clone();
+		this.mus = mus.clone();
+		this.nus = nus.clone();
+	}
+
+	public void setThreads(int threads){
+		if(threads < 1)
+			throw new IllegalArgumentException("argument threads must be positive (passed " + threads + ")");
+		this.threads = threads;
+	}
+
+	/**
+	 * @param memoryBudget the heap the concurrent runs can use, in bytes; fewer runs than threads are run at the same
+	 * time if their savings do not fit, but at least one
+	 */
+	public void setMemoryBudget(long memoryBudget){
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * @param timeLimit the wall-clock budget, in milliseconds; runs are abandoned once it is spent, except the plain
+	 * savings (no limit if not positive)
+	 */
+	public void setTimeLimit(long timeLimit){
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return the parameters {&lambda;, &mu;, &nu;} of the best solution found by the last call to {@link #run()}
+	 */
+	public double[] getBestParameters(){
+		return parameters(bestIndex);
+	}
+
+	/**
+	 * @return the number of runs completed by the last call to {@link #run()}
+	 */
+	public int getRuns(){
+		return runs;
+	}
+
+	/**
+	 * @return the number of combinations of the grid
+	 */
+	public int getGridSize(){
+		return lambdas.length * mus.length * nus.length + 1;
+	}
+
+	@Override
+	public ISolution run(){
+		best = null;
+		bestIndex = 0;
+		runs = 0;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeLimit));
+
+		// the ingredients shared by all the runs
+		int n = distances.size();
+		double[] depot = SavingsStore.depotDistances(distances);
+		double[][] weights = new double[nus.length][];
+		for(int c=0; c<nus.length; c++)
+			weights[c] = SavingsStore.demandWeights(demands, n, nus[c]);
+		double[] plain = new double[n];
+
+		// the plain savings come first and are always run
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int index=0; index<getGridSize(); index++){
+			int k = index;
+			tasks.add(() -> {
+				solve(k, depot, k == 0 ? plain : weights[(k - 1) % nus.length], deadline);
+				return null;
+			});
+		}
+
+		int workers = (int) Math.max(1, Math.min(Math.min(threads, tasks.size()), memoryBudget / estimate(n)));
+		if(workers == 1){
+			for(Callable<Void> task : tasks)
+				call(task);
+			return result();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Future<Void>> futures = new ArrayList<>();
+		for(Callable<Void> task : tasks)
+			futures.add(executor.submit(task));
+		executor.shutdown();
+		try{
+			for(Future<Void> future : futures)
+				future.get();
+		}catch(ExecutionException e){
+			stop(executor);
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}catch(InterruptedException e){
+			stop(executor);
+			Thread.currentThread().interrupt();
+		}
+		return result();
+	}
+
+	/**
+	 * Runs a position of the grid, unless the budget is spent. Every position but the plain savings is abandoned as
+	 * soon as the budget is spent, between the computation of its savings and its merge loop or during the merge loop;
+	 * every position is abandoned if the thread is interrupted.
+	 * @param k the position in the grid
+	 * @param depot the distances between each node and the depot
+	 * @param weights the demand term of each node for the &nu; of the position
+	 * @param deadline the end of the budget, in the time of {@link System#nanoTime()}
+	 */
+	private void solve(int k, double[] depot, double[] weights, long deadline){
+		if(k > 0 && expired(deadline))
+			return;
+		double[] p = parameters(k);
+		SavingsStore savings = SavingsStore.calc(distances, depot, weights, p[0], p[1]);
+		if(k > 0 && expired(deadline) || Thread.currentThread().isInterrupted())
+			return;
+		ClarkeWright cw = new ClarkeWright(distances, demands, Q, savings);
+		cw.setListener(new Deadline(k > 0, deadline));
+		VRPSolution solution;
+		try{
+			solution = (VRPSolution) cw.run();
+		}catch(Expired e){
+			return;
+		}
+		offer(solution, k);
+	}
+
+	/**
+	 * @param deadline the end of the budget, in the time of {@link System#nanoTime()}
+	 * @return true if there is a budget and it is spent
+	 */
+	private boolean expired(long deadline){
+		return timeLimit > 0 && System.nanoTime() - deadline >= 0;
+	}
+
+	/**
+	 * @return the best solution
+	 * @throws IllegalStateException if no run completed
+	 */
+	private VRPSolution result(){
+		if(best == null)
+			throw new IllegalStateException("no run of the portfolio completed");
+		return best;
+	}
+
+	/**
+	 * Runs a task on the calling thread, propagating its failure
+	 */
+	private static void call(Callable<Void> task){
+		try{
+			task.call();
+		}catch(RuntimeException e){
+			throw e;
+		}catch(Exception e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Interrupts the running tasks, drops the waiting ones and waits until the threads are done, so that no task
+	 * touches the portfolio afterwards
+	 */
+	private static void stop(ExecutorService executor){
+		executor.shutdownNow();
+		boolean interrupted = false;
+		while(true){
+			try{
+				if(executor.awaitTermination(1, TimeUnit.MINUTES))
+					break;
+			}catch(InterruptedException e){
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * @param n the number of nodes (including the depot)
+	 * @return the estimated heap of a run, in bytes
+	 */
+	private static long estimate(int n){
+		return Math.max(1, BYTES_PER_PAIR * ((long) (n - 1) * (n - 2) / 2));
+	}
+
+	/**
+	 * Keeps a solution if it is better than the best one, or as good and earlier in the grid
+	 */
+	private synchronized void offer(VRPSolution solution, int index){
+		runs++;
+		if(best == null || solution.getOF() < best.getOF() || (solution.getOF() == best.getOF() && index < bestIndex)){
+			best = solution;
+			bestIndex = index;
+		}
+	}
+
+	/**
+	 * @param index the position in the grid, 0 being the plain savings
+	 * @return the parameters {&lambda;, &mu;, &nu;} at this position
+	 */
+	private double[] parameters(int index){
+		if(index == 0)
+			return new double[]{1, 0, 0};
+		int k = index - 1;
+		return new double[]{lambdas[k / (mus.length * nus.length)], mus[k / nus.length % mus.length], nus[k % nus.length]};
+	}
+
+	/**
+	 * Abandons the merge loop of a run when the budget is spent or the thread is interrupted. Both are checked every
+	 * {@link #CHECK_INTERVAL} savings, so that the check costs nothing next to the loop.
+	 */
+	private final class Deadline implements ISolverListener {
+		/**
+		 * true if the run is abandoned when the budget is spent
+		 */
+		private final boolean limited;
+		private final long deadline;
+		private int examined;
+
+		private Deadline(boolean limited, long deadline){
+			this.limited = limited;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void savingExamined(int sourceId, int targetId){
+			if(++examined % CHECK_INTERVAL == 0 && (Thread.currentThread().isInterrupted() || limited && expired(deadline)))
+				throw new Expired();
+		}
+	}
+
+	/**
+	 * Thrown by {@link Deadline} to abandon a run
+	 */
+	@SuppressWarnings("serial")
+	private static final class Expired extends RuntimeException {
+		private Expired(){
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * @return the values from <code>from</code> to <code>to</code> (both inclusive) by steps of <code>step</code>
+	 */
+	private static double[] range(double from, double to, double step){
+		int count = (int) Math.round((to - from) / step) + 1;
+		double[] values = new double[count];
+		for(int k=0; k<count; k++)
+			values[k] = Math.round((from + k * step) * 1e6) / 1e6;
+		return values;
+	}
+
+}
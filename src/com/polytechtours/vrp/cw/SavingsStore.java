@@ -0,0 +1,837 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.ISavings;
+import com.polytechtours.vrp.data.InstanceSnapshot;
+
+/**
+ * Stores a sorted list of savings as parallel primitive arrays (struct of arrays) instead of one {@link Saving}
+ * object per pair of nodes. Each saving takes 12 bytes: the IDs of its two nodes as <code>int</code> and its value
+ * as <code>float</code>. Savings are computed in double precision, narrowed as they are stored, and sorted in place on
+ * the stored value, so building a store never takes more than these 12 bytes per saving.</br>
+ * Savings are ranked in descending order of (single precision) value; ties are broken by ascending source ID and then
+ * ascending target ID (i.e., the order in which the pairs are generated).</br>
+ * A store is immutable once built, the list is consumed through a {@link Cursor}.</br>
+ * Granular stores, restricted to the savings between neighbours, are built by {@link #calc(IDistanceMatrix, int[][])}.</br>
+ * Parametric savings (route shape, asymmetry and demand terms) are built by
+ * {@link #calc(IDistanceMatrix, IDemands, double, double, double)}.</br>
+ * Stores can be built sequentially ({@link #calc(IDistanceMatrix)}) or on a {@link ForkJoinPool}
+ * ({@link #calc(IDistanceMatrix, ForkJoinPool)}); since the order is total both paths produce exactly the same store.
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 20, 2018
+ *
+ */
+public class SavingsStore implements ISavings {
+
+	/**
+	 * number of bytes of heap taken by a saving, while the store is built as well as once it is sorted
+	 */
+	public static final int BYTES_PER_SAVING = 12;
+	/**
+	 * number of columns of a tile of the (i, j) triangle. The depot distances of the columns of a tile are reused by all its rows.
+	 */
+	private static final int BLOCK = 1024;
+	/**
+	 * number of savings from which a range of rows is generated as a separate task
+	 */
+	private static final int GENERATION_THRESHOLD = 1 << 15;
+	/**
+	 * smallest number of savings per bucket of the parallel sample sort
+	 */
+	private static final int SORT_THRESHOLD = 1 << 13;
+	/**
+	 * number of buckets of the parallel sample sort per thread of the pool, so that uneven buckets still keep every
+	 * thread busy
+	 */
+	private static final int BUCKETS_PER_THREAD = 8;
+	/**
+	 * number of savings sampled per bucket to choose the splitters of the parallel sample sort
+	 */
+	private static final int SAMPLES_PER_BUCKET = 32;
+
+	/**
+	 * id of first node of each saving
+	 */
+	private final int[] sourceIds;
+	/**
+	 * id of second node of each saving
+	 */
+	private final int[] targetIds;
+	/**
+	 * value of each saving
+	 */
+	private final float[] values;
+	/**
+	 * time spent computing the savings, in nanoseconds (0 if the store was not computed by this class)
+	 */
+	private long generationTime;
+	/**
+	 * time spent sorting the savings, in nanoseconds (0 if the store was not computed by this class)
+	 */
+	private long sortTime;
+
+	/**
+	 * Wraps up sorted arrays
+	 * @param sourceIds
+	 * @param targetIds
+	 * @param values
+	 */
+	private SavingsStore(int[] sourceIds, int[] targetIds, float[] values){
+		this.sourceIds = sourceIds;
+		this.targetIds = targetIds;
+		this.values = values;
+	}
+
+	/**
+	 * Function to calculate the sorted store of savings </br>
+	 * By using the matrix of distance in form of {@link IDistanceMatrix}
+	 *
+	 * @param distances
+	 * @return the savings in descending order
+	 */
+	public static SavingsStore calc(IDistanceMatrix distances){
+		int n = distances.size();
+		int count = count(n);
+		int[] sourceIds = new int[count];
+		int[] targetIds = new int[count];
+		float[] values = new float[count];
+
+		// calculate the saving list
+		long start = System.nanoTime();
+		fill(distances, depotDistances(distances), values, sourceIds, targetIds, 1, n);
+		long filled = System.nanoTime();
+
+		sort(values, sourceIds, targetIds, 0, count - 1);
+		return timed(new SavingsStore(sourceIds, targetIds, values), start, filled);
+	}
+
+	/**
+	 * Function to calculate the sorted store of savings in parallel with a sample sort, so that no step runs on a
+	 * single thread over all the savings:
+	 * <ol>
+	 * <li>a sample of the savings is sorted and cut into splitters delimiting buckets of consecutive ranks;</li>
+	 * <li>the rows of the (i, j) triangle are split into chunks, and each chunk counts its savings per bucket
+	 * (concurrently);</li>
+	 * <li>each chunk computes its savings again and writes them to its own slots of their buckets (concurrently);</li>
+	 * <li>the buckets are sorted independently (concurrently).</li>
+	 * </ol>
+	 * Splitters and savings are compared with the total order of the store, so the buckets are balanced even when
+	 * many savings have the same value, and the result is identical to {@link #calc(IDistanceMatrix)}. Computing the
+	 * savings twice avoids a second copy of the arrays: the build takes 12 bytes per saving, as the store.</br>
+	 * The distance matrix is only read, implementations of {@link IDistanceMatrix} must therefore support concurrent reads.
+	 *
+	 * @param distances
+	 * @param pool the pool running the tasks
+	 * @return the savings in descending order
+	 */
+	public static SavingsStore calc(IDistanceMatrix distances, ForkJoinPool pool){
+		long start = System.nanoTime();
+		SampleSort build = new SampleSort(distances, depotDistances(distances), pool.getParallelism());
+		pool.invoke(new ForEach(build::countChunk, 0, build.chunks()));
+		build.allocate();
+		pool.invoke(new ForEach(build::scatterChunk, 0, build.chunks()));
+		long filled = System.nanoTime();
+		pool.invoke(new ForEach(build::sortBucket, 0, build.buckets()));
+		return timed(new SavingsStore(build.sourceIds, build.targetIds, build.values), start, filled);
+	}
+
+	/**
+	 * Function to calculate the sorted store of parametric savings </br>
+	 * s(i, j) = d(D, i) + d(D, j) - &lambda;&middot;d(i, j) + &mu;&middot;|d(D, i) - d(D, j)| + &nu;&middot;(q(i) + q(j)) / q&#772;,
+	 * where q&#772; is the mean demand of the customers. With &lambda; = 1, &mu; = 0 and &nu; = 0 the store is the same as
+	 * {@link #calc(IDistanceMatrix)}.
+	 *
+	 * @param distances
+	 * @param demands
+	 * @param lambda the route shape parameter &lambda;
+	 * @param mu the asymmetry parameter &mu;
+	 * @param nu the demand parameter &nu;
+	 * @return the savings in descending order
+	 */
+	public static SavingsStore calc(IDistanceMatrix distances, IDemands demands, double lambda, double mu, double nu){
+		return calc(distances, depotDistances(distances), demandWeights(demands, distances.size(), nu), lambda, mu);
+	}
+
+	/**
+	 * Function to calculate the sorted store of parametric savings from precomputed ingredients, which can therefore be
+	 * shared by the stores of several parameter sets (see {@link SavingsPortfolio})
+	 *
+	 * @param distances
+	 * @param depot the distances between each node and the depot (see {@link #depotDistances(IDistanceMatrix)})
+	 * @param weights the demand term of each node (see {@link #demandWeights(IDemands, int, double)})
+	 * @param lambda the route shape parameter &lambda;
+	 * @param mu the asymmetry parameter &mu;
+	 * @return the savings in descending order
+	 */
+	static SavingsStore calc(IDistanceMatrix distances, double[] depot, double[] weights, double lambda, double mu){
+		int n = distances.size();
+		int count = count(n);
+		int[] sourceIds = new int[count];
+		int[] targetIds = new int[count];
+		float[] values = new float[count];
+		long start = System.nanoTime();
+		fill(distances, depot, weights, lambda, mu, values, sourceIds, targetIds, 1, n);
+		long filled = System.nanoTime();
+
+		sort(values, sourceIds, targetIds, 0, count - 1);
+		return timed(new SavingsStore(sourceIds, targetIds, values), start, filled);
+	}
+
+	/**
+	 * Function to calculate the sorted store of granular savings: only the savings between a customer and one of its
+	 * neighbours are computed, so the store holds O(n&middot;k) savings for <code>k</code> neighbours per customer.
+	 * A pair is included once if either node is in the neighbour list of the other; the depot is ignored if it appears in a list.
+	 *
+	 * @param distances
+	 * @param neighbors the neighbour list of each node (see {@link com.polytechtours.vrp.util.NearestNeighbors})
+	 * @return the savings in descending order
+	 */
+	public static SavingsStore calc(IDistanceMatrix distances, int[][] neighbors){
+		int n = distances.size();
+		long start = System.nanoTime();
+		double[] depot = depotDistances(distances);
+
+		// count the pairs first so the arrays are allocated once
+		long count = 0;
+		for(int i=1; i<n; i++){
+			for(int j : neighbors[i]){
+				if(isGranularPair(neighbors, i, j))
+					count++;
+			}
+		}
+		if(count > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("too many savings (" + count + ")");
+
+		int[] sourceIds = new int[(int) count];
+		int[] targetIds = new int[(int) count];
+		float[] values = new float[(int) count];
+		int k = 0;
+		for(int i=1; i<n; i++){
+			for(int j : neighbors[i]){
+				if(isGranularPair(neighbors, i, j)){
+					sourceIds[k] = Math.min(i, j);
+					targetIds[k] = Math.max(i, j);
+					values[k] = (float) (depot[sourceIds[k]] + depot[targetIds[k]] - distances.getDistance(sourceIds[k], targetIds[k]));
+					k++;
+				}
+			}
+		}
+		long filled = System.nanoTime();
+
+		sort(values, sourceIds, targetIds, 0, k - 1);
+		return timed(new SavingsStore(sourceIds, targetIds, values), start, filled);
+	}
+
+	/**
+	 * Builds a store from a list of {@link Saving} objects. The order of the list is preserved.
+	 *
+	 * @param savings the savings, in the order in which they must be processed
+	 * @return the store
+	 */
+	public static SavingsStore of(List<Saving> savings){
+		int[] sourceIds = new int[savings.size()];
+		int[] targetIds = new int[savings.size()];
+		float[] values = new float[savings.size()];
+		for(int k=0; k<savings.size(); k++){
+			Saving saving = savings.get(k);
+			sourceIds[k] = saving.getSourceId();
+			targetIds[k] = saving.getTargetId();
+			values[k] = (float) saving.getSaving();
+		}
+		return new SavingsStore(sourceIds, targetIds, values);
+	}
+
+	/**
+	 * Wraps up arrays holding a list of savings (e.g., read back from an instance snapshot). The arrays are not copied
+	 * and the order is preserved.
+	 *
+	 * @param sourceIds the id of first node of each saving
+	 * @param targetIds the id of second node of each saving
+	 * @param values the value of each saving
+	 * @return the store
+	 */
+	public static SavingsStore of(int[] sourceIds, int[] targetIds, float[] values){
+		if(sourceIds.length != targetIds.length || sourceIds.length != values.length)
+			throw new IllegalArgumentException("arguments sourceIds, targetIds and values must have the same length");
+		return new SavingsStore(sourceIds, targetIds, values);
+	}
+
+	/**
+	 * Reads the savings held by an instance snapshot, or computes them from its distance matrix if it holds none. A
+	 * snapshot written with {@link #calc(IDistanceMatrix)} gives back the same store.
+	 *
+	 * @param snapshot the snapshot
+	 * @return the store
+	 */
+	public static SavingsStore of(InstanceSnapshot snapshot){
+		if(!snapshot.hasSavings())
+			return calc(snapshot.getDistanceMatrix());
+		int count = snapshot.getSavingsCount();
+		int[] sourceIds = new int[count];
+		int[] targetIds = new int[count];
+		float[] values = new float[count];
+		snapshot.readSavings(sourceIds, targetIds, values);
+		return new SavingsStore(sourceIds, targetIds, values);
+	}
+
+	/**
+	 * @return the number of savings in the store
+	 */
+	@Override
+	public int size(){
+		return sourceIds.length;
+	}
+
+	/**
+	 * @param k the rank of the saving
+	 * @return the id of first node of the saving
+	 */
+	@Override
+	public int getSourceId(int k){
+		return sourceIds[k];
+	}
+
+	/**
+	 * @param k the rank of the saving
+	 * @return the id of second node of the saving
+	 */
+	@Override
+	public int getTargetId(int k){
+		return targetIds[k];
+	}
+
+	/**
+	 * @param k the rank of the saving
+	 * @return the value of the saving (in single precision)
+	 */
+	@Override
+	public float getSaving(int k){
+		return values[k];
+	}
+
+	/**
+	 * @return the time spent computing the savings, in nanoseconds (0 if the store was built by {@link #of(List)} or
+	 * {@link #of(int[], int[], float[])})
+	 */
+	public long getGenerationTime(){
+		return generationTime;
+	}
+
+	/**
+	 * @return the time spent sorting the savings, in nanoseconds (0 if the store was built by
+	 * {@link #of(List)} or {@link #of(int[], int[], float[])})
+	 */
+	public long getSortTime(){
+		return sortTime;
+	}
+
+	/**
+	 * @return a new cursor positioned before the first saving
+	 */
+	public Cursor cursor(){
+		return new Cursor();
+	}
+
+	/**
+	 * Walks through the savings in descending order without allocating nor modifying the store.
+	 * Several cursors can walk the same store independently.
+	 */
+	public class Cursor implements ISavingsSource {
+		/**
+		 * rank of the current saving
+		 */
+		private int position = -1;
+
+		/**
+		 * Moves the cursor to the next saving
+		 * @return true if the cursor points to a saving, false if the store is exhausted
+		 */
+		@Override
+		public boolean next(){
+			if(position < sourceIds.length)
+				position++;
+			return position < sourceIds.length;
+		}
+
+		/**
+		 * @return the rank of the current saving
+		 */
+		public int position(){
+			return position;
+		}
+
+		@Override
+		public int size(){
+			return sourceIds.length;
+		}
+
+		/**
+		 * @return the id of first node of the current saving
+		 */
+		@Override
+		public int getSourceId(){
+			return sourceIds[position];
+		}
+
+		/**
+		 * @return the id of second node of the current saving
+		 */
+		@Override
+		public int getTargetId(){
+			return targetIds[position];
+		}
+
+		/**
+		 * @return the value of the current saving
+		 */
+		@Override
+		public float getSaving(){
+			return values[position];
+		}
+	}
+
+	/**
+	 * Records the generation and sort times of a store built from <code>start</code> on, the savings being computed at
+	 * <code>filled</code> and the store sorted now
+	 */
+	private static SavingsStore timed(SavingsStore store, long start, long filled){
+		store.generationTime = filled - start;
+		store.sortTime = System.nanoTime() - filled;
+		return store;
+	}
+
+	/**
+	 * @param n the number of nodes (including the depot)
+	 * @return the number of savings between the <code>n-1</code> customers
+	 */
+	static int count(int n){
+		long count = (long) (n - 1) * (n - 2) / 2;
+		if(count > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("too many savings for " + n + " nodes");
+		return (int) count;
+	}
+
+	/**
+	 * @param n the number of nodes (including the depot)
+	 * @param i the source ID
+	 * @return the position in the unsorted arrays of the first saving with source <code>i</code>
+	 */
+	static int offset(int n, int i){
+		return (int) ((long) (i - 1) * (n - 1) - (long) (i - 1) * i / 2);
+	}
+
+	/**
+	 * @param distances
+	 * @return the distances between each node and the depot
+	 */
+	static double[] depotDistances(IDistanceMatrix distances){
+		double[] depot = new double[distances.size()];
+		for(int i=0; i<depot.length; i++)
+			depot[i] = distances.getDistance(i, 0);
+		return depot;
+	}
+
+	/**
+	 * @param demands
+	 * @param n the number of nodes (including the depot)
+	 * @param nu the demand parameter &nu;
+	 * @return the demand term &nu;&middot;q(i) / q&#772; of each node (0 for the depot, and for every node if the demands are all 0)
+	 */
+	static double[] demandWeights(IDemands demands, int n, double nu){
+		double total = 0;
+		for(int i=1; i<n; i++)
+			total += demands.getDemand(i);
+		double[] weights = new double[n];
+		if(nu != 0 && total > 0){
+			for(int i=1; i<n; i++)
+				weights[i] = nu * demands.getDemand(i) * (n - 1) / total;
+		}
+		return weights;
+	}
+
+	/**
+	 * Computes the savings with a source in rows <code>from</code> (inclusive) to <code>to</code> (exclusive), tile by tile.
+	 * Saving (i, j) is stored in position <code>offset(i)+j-i-1</code>, so disjoint ranges of rows can be filled concurrently.
+	 */
+	static void fill(IDistanceMatrix distances, double[] depot, float[] values, int[] sourceIds, int[] targetIds, int from, int to){
+		int n = distances.size();
+		for(int jb=from + 1; jb<n; jb+=BLOCK){
+			int je = Math.min(jb + BLOCK, n);
+			for(int i=from; i<to && i + 1<je; i++){
+				int k = offset(n, i) - i - 1;
+				double di = depot[i];
+				for(int j=Math.max(jb, i + 1); j<je; j++){
+					sourceIds[k + j] = i;
+					targetIds[k + j] = j;
+					values[k + j] = (float) (di + depot[j] - distances.getDistance(i, j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the parametric savings with a source in rows <code>from</code> (inclusive) to <code>to</code> (exclusive),
+	 * in the same positions as {@link #fill(IDistanceMatrix, double[], float[], int[], int[], int, int)}
+	 */
+	static void fill(IDistanceMatrix distances, double[] depot, double[] weights, double lambda, double mu, float[] values, int[] sourceIds, int[] targetIds, int from, int to){
+		int n = distances.size();
+		for(int jb=from + 1; jb<n; jb+=BLOCK){
+			int je = Math.min(jb + BLOCK, n);
+			for(int i=from; i<to && i + 1<je; i++){
+				int k = offset(n, i) - i - 1;
+				double di = depot[i];
+				for(int j=Math.max(jb, i + 1); j<je; j++){
+					sourceIds[k + j] = i;
+					targetIds[k + j] = j;
+					values[k + j] = (float) (di + depot[j] - lambda * distances.getDistance(i, j) + mu * Math.abs(di - depot[j]) + (weights[i] + weights[j]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs an action on each index of a range, splitting the range in halves down to single indices
+	 */
+	@SuppressWarnings("serial")
+	private static class ForEach extends RecursiveAction {
+		private final IntConsumer action;
+		private final int from;
+		private final int to;
+
+		ForEach(IntConsumer action, int from, int to){
+			this.action = action;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from == 1){
+				action.accept(from);
+			}else if(to > from){
+				int mid = (from + to) >>> 1;
+				invokeAll(new ForEach(action, from, mid), new ForEach(action, mid, to));
+			}
+		}
+	}
+
+	/**
+	 * The state of a parallel sample sort of the savings (see {@link SavingsStore#calc(IDistanceMatrix, ForkJoinPool)}).
+	 * Chunk <code>c</code> holds the rows from <code>rows[c]</code> (inclusive) to <code>rows[c+1]</code> (exclusive);
+	 * bucket <code>b</code> holds the savings ranked after splitter <code>b-1</code> (inclusive) and before splitter
+	 * <code>b</code>, in positions <code>starts[b]</code> to <code>starts[b+1]</code> (exclusive).
+	 */
+	private static final class SampleSort {
+		private final IDistanceMatrix distances;
+		private final double[] depot;
+		private final int n;
+		private final int[] rows;
+		private final float[] splitterValues;
+		private final int[] splitterSources;
+		private final int[] splitterTargets;
+		private final int[] starts;
+		/**
+		 * the number of savings of each chunk in each bucket, then the next position written by each chunk in each bucket
+		 */
+		private final int[][] cursors;
+		private int[] sourceIds;
+		private int[] targetIds;
+		private float[] values;
+
+		SampleSort(IDistanceMatrix distances, double[] depot, int threads){
+			this.distances = distances;
+			this.depot = depot;
+			this.n = distances.size();
+			int count = count(n);
+
+			// chunks of consecutive rows of at least GENERATION_THRESHOLD savings (but the last one)
+			int[] rows = new int[n + 1];
+			int chunks = 0;
+			rows[0] = 1;
+			for(int i=1, pairs=0; i<n; i++){
+				pairs += n - 1 - i;
+				if(pairs >= GENERATION_THRESHOLD || i == n - 1){
+					rows[++chunks] = i + 1;
+					pairs = 0;
+				}
+			}
+			this.rows = Arrays.copyOf(rows, chunks + 1);
+
+			// splitters: evenly spaced ranks of a sorted sample of pairs drawn uniformly (the sample only affects the
+			// balance of the buckets, not the result); the number of buckets is rounded down to a power of two
+			int buckets = Integer.highestOneBit((int) Math.max(1, Math.min((long) BUCKETS_PER_THREAD * threads, count / SORT_THRESHOLD)));
+			int samples = count == 0 ? 0 : buckets * SAMPLES_PER_BUCKET;
+			float[] sampleValues = new float[samples];
+			int[] sampleSources = new int[samples];
+			int[] sampleTargets = new int[samples];
+			Random random = new Random(n);
+			for(int k=0; k<samples; k++){
+				int i, j;
+				do{
+					i = 1 + random.nextInt(n - 1);
+					j = 1 + random.nextInt(n - 1);
+				}while(i == j);
+				if(i > j){
+					int swap = i;
+					i = j;
+					j = swap;
+				}
+				sampleValues[k] = value(i, j);
+				sampleSources[k] = i;
+				sampleTargets[k] = j;
+			}
+			SavingsStore.sort(sampleValues, sampleSources, sampleTargets, 0, samples - 1);
+			this.splitterValues = new float[buckets - 1];
+			this.splitterSources = new int[buckets - 1];
+			this.splitterTargets = new int[buckets - 1];
+			for(int b=0; b<buckets - 1; b++){
+				int k = (b + 1) * SAMPLES_PER_BUCKET;
+				splitterValues[b] = sampleValues[k];
+				splitterSources[b] = sampleSources[k];
+				splitterTargets[b] = sampleTargets[k];
+			}
+			this.starts = new int[buckets + 1];
+			this.cursors = new int[chunks][buckets];
+		}
+
+		int chunks(){
+			return cursors.length;
+		}
+
+		int buckets(){
+			return starts.length - 1;
+		}
+
+		/**
+		 * @return the value of saving (i, j), as stored
+		 */
+		private float value(int i, int j){
+			return (float) (depot[i] + depot[j] - distances.getDistance(i, j));
+		}
+
+		/**
+		 * @return the bucket of saving (i, j), i.e., the number of splitters ranked before it or equal to it. The number
+		 * of buckets is a power of two, so the search always takes log<sub>2</sub>(buckets) steps and its outcome only
+		 * feeds an addition, which keeps the loop free of unpredictable branches.
+		 */
+		private int bucket(float value, int i, int j){
+			int b = 0;
+			for(int step=(starts.length - 1) >>> 1; step>0; step>>>=1){
+				int m = b + step - 1;
+				float v = splitterValues[m];
+				boolean after = value < v || value == v && (i > splitterSources[m] || i == splitterSources[m] && j > splitterTargets[m]);
+				b += after ? step : 0;
+			}
+			return b;
+		}
+
+		/**
+		 * Counts the savings of a chunk in each bucket
+		 */
+		void countChunk(int chunk){
+			int[] counts = cursors[chunk];
+			for(int jb=rows[chunk] + 1; jb<n; jb+=BLOCK){
+				int je = Math.min(jb + BLOCK, n);
+				for(int i=rows[chunk]; i<rows[chunk + 1] && i + 1<je; i++){
+					for(int j=Math.max(jb, i + 1); j<je; j++)
+						counts[bucket(value(i, j), i, j)]++;
+				}
+			}
+		}
+
+		/**
+		 * Allocates the arrays of the store and turns the counts into the first position written by each chunk in each bucket
+		 */
+		void allocate(){
+			int position = 0;
+			for(int b=0; b<buckets(); b++){
+				starts[b] = position;
+				for(int[] counts : cursors){
+					int c = counts[b];
+					counts[b] = position;
+					position += c;
+				}
+			}
+			starts[buckets()] = position;
+			sourceIds = new int[position];
+			targetIds = new int[position];
+			values = new float[position];
+		}
+
+		/**
+		 * Writes the savings of a chunk to its positions in their buckets
+		 */
+		void scatterChunk(int chunk){
+			int[] next = cursors[chunk];
+			for(int jb=rows[chunk] + 1; jb<n; jb+=BLOCK){
+				int je = Math.min(jb + BLOCK, n);
+				for(int i=rows[chunk]; i<rows[chunk + 1] && i + 1<je; i++){
+					for(int j=Math.max(jb, i + 1); j<je; j++){
+						float value = value(i, j);
+						int k = next[bucket(value, i, j)]++;
+						values[k] = value;
+						sourceIds[k] = i;
+						targetIds[k] = j;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Sorts a bucket
+		 */
+		void sortBucket(int bucket){
+			SavingsStore.sort(values, sourceIds, targetIds, starts[bucket], starts[bucket + 1] - 1);
+		}
+	}
+
+	/**
+	 * Tells whether the pair (i, j), with <code>j</code> in the neighbour list of <code>i</code>, must be stored when
+	 * scanning the list of <code>i</code>. A pair found in both lists is only stored from the list of its smallest node.
+	 */
+	private static boolean isGranularPair(int[][] neighbors, int i, int j){
+		if(j == 0 || j == i)
+			return false;
+		if(j > i)
+			return true;
+		for(int o : neighbors[j]){
+			if(o == i)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tells whether the saving in position <code>a</code> must be processed before the saving in position <code>b</code>
+	 */
+	static boolean before(float[] values, int[] sourceIds, int[] targetIds, int a, int b){
+		if(values[a] != values[b])
+			return values[a] > values[b];
+		if(sourceIds[a] != sourceIds[b])
+			return sourceIds[a] < sourceIds[b];
+		return targetIds[a] < targetIds[b];
+	}
+
+	/**
+	 * Swaps two savings in the parallel arrays
+	 */
+	private static void swap(float[] values, int[] sourceIds, int[] targetIds, int a, int b){
+		float value = values[a];
+		values[a] = values[b];
+		values[b] = value;
+		int id = sourceIds[a];
+		sourceIds[a] = sourceIds[b];
+		sourceIds[b] = id;
+		id = targetIds[a];
+		targetIds[a] = targetIds[b];
+		targetIds[b] = id;
+	}
+
+	/**
+	 * Partitions the savings in positions <code>lo</code> to <code>hi</code> (both inclusive, at least three savings) around
+	 * the median of the first, middle and last savings
+	 * @return the final position of the pivot
+	 */
+	static int partition(float[] values, int[] sourceIds, int[] targetIds, int lo, int hi){
+		int mid = (lo + hi) >>> 1;
+		if(before(values, sourceIds, targetIds, mid, lo))
+			swap(values, sourceIds, targetIds, mid, lo);
+		if(before(values, sourceIds, targetIds, hi, lo))
+			swap(values, sourceIds, targetIds, hi, lo);
+		if(before(values, sourceIds, targetIds, hi, mid))
+			swap(values, sourceIds, targetIds, hi, mid);
+		// the median is moved next to the end and used as pivot
+		swap(values, sourceIds, targetIds, mid, hi - 1);
+		int pivot = hi - 1;
+		int i = lo;
+		int j = hi - 1;
+		while(true){
+			while(before(values, sourceIds, targetIds, ++i, pivot));
+			while(before(values, sourceIds, targetIds, pivot, --j));
+			if(i >= j)
+				break;
+			swap(values, sourceIds, targetIds, i, j);
+		}
+		swap(values, sourceIds, targetIds, i, hi - 1);
+		return i;
+	}
+
+	/**
+	 * Sorts in place the savings in positions <code>lo</code> to <code>hi</code> (both inclusive). Introsort: quicksort
+	 * with median of three pivoting, recursing on the smaller partition, falling back to heapsort once the partitions
+	 * are more than 2&middot;log<sub>2</sub>(size) deep, and insertion sort on short ranges.
+	 */
+	static void sort(float[] values, int[] sourceIds, int[] targetIds, int lo, int hi){
+		if(hi > lo)
+			sort(values, sourceIds, targetIds, lo, hi, depthLimit(hi - lo + 1));
+	}
+
+	/**
+	 * @param size the number of savings of a range
+	 * @return the number of nested partitions of the range after which it is sorted with heapsort
+	 */
+	static int depthLimit(int size){
+		return 2 * (31 - Integer.numberOfLeadingZeros(size));
+	}
+
+	private static void sort(float[] values, int[] sourceIds, int[] targetIds, int lo, int hi, int depth){
+		while(hi - lo > 16){
+			if(depth-- == 0){
+				heapSort(values, sourceIds, targetIds, lo, hi);
+				return;
+			}
+			int i = partition(values, sourceIds, targetIds, lo, hi);
+			if(i - lo < hi - i){
+				sort(values, sourceIds, targetIds, lo, i - 1, depth);
+				lo = i + 1;
+			}else{
+				sort(values, sourceIds, targetIds, i + 1, hi, depth);
+				hi = i - 1;
+			}
+		}
+		for(int i=lo + 1; i<=hi; i++){
+			for(int j=i; j>lo && before(values, sourceIds, targetIds, j, j - 1); j--)
+				swap(values, sourceIds, targetIds, j, j - 1);
+		}
+	}
+
+	/**
+	 * Sorts in place the savings in positions <code>lo</code> to <code>hi</code> (both inclusive) with heapsort: the
+	 * root of the heap is the saving ranked last, and is moved to the end of the range
+	 */
+	private static void heapSort(float[] values, int[] sourceIds, int[] targetIds, int lo, int hi){
+		int size = hi - lo + 1;
+		for(int k=size / 2 - 1; k>=0; k--)
+			siftDown(values, sourceIds, targetIds, lo, k, size);
+		for(int end=size - 1; end>0; end--){
+			swap(values, sourceIds, targetIds, lo, lo + end);
+			siftDown(values, sourceIds, targetIds, lo, 0, end);
+		}
+	}
+
+	/**
+	 * Moves the saving in position <code>lo+k</code> down the heap of <code>size</code> savings starting in position <code>lo</code>
+	 */
+	private static void siftDown(float[] values, int[] sourceIds, int[] targetIds, int lo, int k, int size){
+		while(2 * k + 1 < size){
+			int child = 2 * k + 1;
+			if(child + 1 < size && before(values, sourceIds, targetIds, lo + child, lo + child + 1))
+				child++;
+			if(!before(values, sourceIds, targetIds, lo + k, lo + child))
+				return;
+			swap(values, sourceIds, targetIds, lo + k, lo + child);
+			k = child;
+		}
+	}
+
+}
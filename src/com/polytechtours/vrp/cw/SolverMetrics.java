@@ -0,0 +1,232 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.Arrays;
+
+/**
+ * Collects the metrics of a run of {@link ClarkeWright}: the time spent in each {@link ISolverListener.Phase}, the
+ * number of savings examined, of merges attempted, rejected on capacity and accepted in each direction, and the number
+ * of routes alive along the run. The metrics describe the last run observed and can be exported as JSON with
+ * {@link #toJson()}.</br>
+ * The number of routes is sampled on accepted merges with a bounded number of points: when the samples are full,
+ * every other one is dropped and the sampling stride doubles, so long runs keep an evenly spaced profile.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class SolverMetrics implements ISolverListener {
+
+	/**
+	 * Default maximum number of samples of the number of routes
+	 */
+	public static final int DEFAULT_SAMPLES = 1024;
+
+	/**
+	 * time spent in each phase, in nanoseconds
+	 */
+	private final long[] times = new long[Phase.values().length];
+	/**
+	 * number of customers of the instance
+	 */
+	private int customers;
+	/**
+	 * number of savings examined
+	 */
+	private long examined;
+	/**
+	 * number of merges rejected because the loads exceed the capacity
+	 */
+	private long rejected;
+	/**
+	 * number of merges accepted in each direction
+	 */
+	private final long[] accepted = new long[4];
+	/**
+	 * number of savings examined at each sample
+	 */
+	private final long[] sampleExamined;
+	/**
+	 * number of routes at each sample
+	 */
+	private final int[] sampleRoutes;
+	/**
+	 * number of samples taken
+	 */
+	private int samples;
+	/**
+	 * number of accepted merges between two samples
+	 */
+	private long stride;
+	/**
+	 * number of routes after the last accepted merge
+	 */
+	private int routes;
+
+	/**
+	 * Constructs a collector keeping up to {@link #DEFAULT_SAMPLES} samples of the number of routes
+	 */
+	public SolverMetrics(){
+		this(DEFAULT_SAMPLES);
+	}
+
+	/**
+	 * Constructs a collector
+	 * @param maxSamples the maximum number of samples of the number of routes (at least 2)
+	 */
+	public SolverMetrics(int maxSamples){
+		if(maxSamples < 2)
+			throw new IllegalArgumentException("argument maxSamples must be at least 2 (passed " + maxSamples + ")");
+		this.sampleExamined = new long[maxSamples];
+		this.sampleRoutes = new int[maxSamples];
+	}
+
+	@Override
+	public void runStarted(int customers){
+		Arrays.fill(times, 0);
+		Arrays.fill(accepted, 0);
+		this.customers = customers;
+		examined = 0;
+		rejected = 0;
+		samples = 0;
+		stride = 1;
+		routes = customers;
+		sample();
+	}
+
+	@Override
+	public void phaseEnded(Phase phase, long nanos){
+		times[phase.ordinal()] += nanos;
+		if(phase == Phase.MERGE && sampleExamined[samples - 1] != examined)
+			sample();
+	}
+
+	@Override
+	public void savingExamined(int sourceId, int targetId){
+		examined++;
+	}
+
+	@Override
+	public void mergeRejected(int sourceId, int targetId){
+		rejected++;
+	}
+
+	@Override
+	public void mergeAccepted(int sourceId, int targetId, int direction, int routes){
+		accepted[direction]++;
+		this.routes = routes;
+		if((customers - routes) % stride == 0)
+			sample();
+	}
+
+	/**
+	 * Records the current number of routes, halving the samples first if they are full
+	 */
+	private void sample(){
+		if(samples == sampleRoutes.length){
+			for(int k=0; k<samples; k+=2){
+				sampleExamined[k / 2] = sampleExamined[k];
+				sampleRoutes[k / 2] = sampleRoutes[k];
+			}
+			samples = (samples + 1) / 2;
+			stride *= 2;
+		}
+		sampleExamined[samples] = examined;
+		sampleRoutes[samples] = routes;
+		samples++;
+	}
+
+	/**
+	 * @param phase the phase
+	 * @return the time spent in the phase, in nanoseconds
+	 */
+	public long getTime(Phase phase){
+		return times[phase.ordinal()];
+	}
+
+	public int getCustomers(){
+		return customers;
+	}
+
+	/**
+	 * @return the number of savings examined
+	 */
+	public long getExamined(){
+		return examined;
+	}
+
+	/**
+	 * @return the number of merges attempted, i.e., of savings linking the ends of two routes
+	 */
+	public long getAttempted(){
+		return rejected + getAccepted();
+	}
+
+	/**
+	 * @return the number of merges rejected because the loads exceed the capacity
+	 */
+	public long getRejected(){
+		return rejected;
+	}
+
+	/**
+	 * @return the number of merges accepted
+	 */
+	public long getAccepted(){
+		return accepted[0] + accepted[1] + accepted[2] + accepted[3];
+	}
+
+	/**
+	 * @param direction the direction of the merges (0: head-head, 1: head-tail, 2: tail-head, 3: tail-tail)
+	 * @return the number of merges accepted in the direction
+	 */
+	public long getAccepted(int direction){
+		return accepted[direction];
+	}
+
+	/**
+	 * @return the number of routes after the last accepted merge
+	 */
+	public int getRoutes(){
+		return routes;
+	}
+
+	/**
+	 * @return the samples of the number of routes, as pairs (savings examined, routes), in the order of the run
+	 */
+	public long[][] getRouteProfile(){
+		long[][] profile = new long[samples][];
+		for(int k=0; k<samples; k++)
+			profile[k] = new long[]{sampleExamined[k], sampleRoutes[k]};
+		return profile;
+	}
+
+	/**
+	 * @return the metrics as a JSON object. Times are in nanoseconds, and <code>routeProfile</code> lists the samples
+	 * of the number of routes as pairs <code>[savings examined, routes]</code>.
+	 */
+	public String toJson(){
+		StringBuilder json = new StringBuilder(64 + 24 * samples);
+		json.append("{\"customers\":").append(customers);
+		json.append(",\"generationNanos\":").append(getTime(Phase.GENERATION));
+		json.append(",\"sortNanos\":").append(getTime(Phase.SORT));
+		json.append(",\"mergeNanos\":").append(getTime(Phase.MERGE));
+		json.append(",\"savingsExamined\":").append(examined);
+		json.append(",\"mergesAttempted\":").append(getAttempted());
+		json.append(",\"mergesRejected\":").append(rejected);
+		json.append(",\"mergesAccepted\":[").append(accepted[0]).append(',').append(accepted[1]).append(',').append(accepted[2]).append(',').append(accepted[3]).append(']');
+		json.append(",\"routes\":").append(routes);
+		json.append(",\"routeProfile\":[");
+		for(int k=0; k<samples; k++){
+			if(k > 0)
+				json.append(',');
+			json.append('[').append(sampleExamined[k]).append(',').append(sampleRoutes[k]).append(']');
+		}
+		return json.append("]}").toString();
+	}
+
+	@Override
+	public String toString(){
+		return toJson();
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.polytechtours.vrp.cw;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only view of a route. Reads are delegated to the wrapped route, so the view always reflects its current state
+ * and costs no copy; every modifying method throws an {@link UnsupportedOperationException}.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 26, 2018
+ *
+ */
+final class UnmodifiableRoute implements IRoute {
+	/**
+	 * The wrapped route
+	 */
+	private final IRoute route;
+
+	UnmodifiableRoute(IRoute route){
+		this.route=route;
+	}
+
+	@Override
+	public int size() {
+		return route.size();
+	}
+
+	@Override
+	public boolean contains(int nodeID) {
+		return route.contains(nodeID);
+	}
+
+	@Override
+	public void reverse() {
+		throw new UnsupportedOperationException("read-only route");
+	}
+
+	@Override
+	public int positionOf(int nodeID) {
+		return route.positionOf(nodeID);
+	}
+
+	@Override
+	public int get(int i) {
+		return route.get(i);
+	}
+
+	@Override
+	public void add(int nodeID) {
+		throw new UnsupportedOperationException("read-only route");
+	}
+
+	@Override
+	public void insert(int nodeID, int i) {
+		throw new UnsupportedOperationException("read-only route");
+	}
+
+	@Override
+	public boolean removeID(int nodeID) {
+		throw new UnsupportedOperationException("read-only route");
+	}
+
+	@Override
+	public int remove(int i) {
+		throw new UnsupportedOperationException("read-only route");
+	}
+
+	@Override
+	public void swap(int i, int j) {
+		throw new UnsupportedOperationException("read-only route");
+	}
+
+	@Override
+	public void relocate(int i, int j) {
+		throw new UnsupportedOperationException("read-only route");
+	}
+
+	/**
+	 * @return a hard (modifiable) copy of the wrapped route
+	 */
+	@Override
+	public IRoute clone() {
+		return route.clone();
+	}
+
+	@Override
+	public List<Integer> getRoute() {
+		return route.getRoute();
+	}
+
+	@Override
+	public void forEach(IntConsumer action) {
+		route.forEach(action);
+	}
+
+	@Override
+	public String toString(){
+		return route.toString();
+	}
+
+}
@@ -1,9 +1,10 @@
 package com.polytechtours.vrp.cw;
 
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
- * Models a VRP route. This implementation wraps a {@link ArrayList} to support {@IRoute} services.
+ * Models a VRP route. This implementation wraps an {@link IRoute} (an {@link IntArrayRoute} unless specified otherwise) to support {@IRoute} services.
  * @author Jorge E. Mendoza (dev@jorge-mendoza.com)
  * @version %I%, %G%
  * @since Jan 21, 2016
@@ -26,7 +27,14 @@ public class VRPRoute implements IRoute{
 	 * 
 	 */
 	public VRPRoute(){
-		this.route=new ArrayRoute();
+		this.route=new IntArrayRoute();
+	}
+	/**
+	 * Constructs a route wrapping up a given data structure
+	 * @param route the (possibly empty) underlying route
+	 */
+	public VRPRoute(IRoute route){
+		this.route=route;
 	}
 	
 	@Override
@@ -84,6 +92,21 @@ public class VRPRoute implements IRoute{
 		route.relocate(i, j);		
 	}
 
+	/**
+	 * Appends the nodes of another route at the end of this route and empties <code>other</code>. When both routes are
+	 * backed by a {@link LinkedRoute} the nodes are moved in O(1), otherwise they are copied one by one.
+	 * The load and cost of the route are not updated.
+	 * @param other the route to append
+	 */
+	public void append(VRPRoute other){
+		if(this.route instanceof LinkedRoute && other.route instanceof LinkedRoute){
+			((LinkedRoute)this.route).append((LinkedRoute)other.route);
+		}else{
+			while(other.size()>0)
+				this.route.add(other.route.remove(0));
+		}
+	}
+
 	@Override
 	public IRoute clone() {
 		VRPRoute clone=new VRPRoute();
@@ -133,4 +156,9 @@ public class VRPRoute implements IRoute{
 		return this.route.getRoute();
 	}
 
+	@Override
+	public void forEach(IntConsumer action) {
+		this.route.forEach(action);
+	}
+
 }
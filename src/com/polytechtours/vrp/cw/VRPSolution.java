@@ -1,7 +1,10 @@
 package com.polytechtours.vrp.cw;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Models a VRP solution
@@ -20,6 +23,29 @@ public class VRPSolution implements ISolution {
 	 * The objective function
 	 */
 	private double of=Double.NaN;
+	/**
+	 * Number of occurrences of each node in the solution, indexed by node ID
+	 */
+	private int[] occurrences=new int[0];
+	/**
+	 * Index of the route visiting each node, indexed by node ID. The entry of a node is only meaningful
+	 * when the node occurs exactly once in the solution (shared nodes such as the depot are resolved by a scan).
+	 */
+	private int[] routeOf=new int[0];
+	/**
+	 * Reusable action moving nodes to another route in the node index, so that {@link #append(int, int)} does not allocate
+	 */
+	private final Relabel relabel=new Relabel();
+	/**
+	 * Reusable action registering nodes in a route of the node index, so that indexing a route walks it once (also a
+	 * {@link LinkedRoute}) without allocating
+	 */
+	private final Index index=new Index();
+	/**
+	 * Reusable action unregistering nodes from the node index, so that removing or replacing a route walks it once
+	 * without allocating
+	 */
+	private final IntConsumer unindex=this::unindexNode;
 	
 	public VRPSolution(){
 		this.routes=new ArrayList<IRoute>();
@@ -40,6 +66,8 @@ public class VRPSolution implements ISolution {
 		VRPSolution clone=new VRPSolution();
 		clone.of=this.of;
 		clone.routes=this.cloneRoutes();
+		clone.occurrences=this.occurrences.clone();
+		clone.routeOf=this.routeOf.clone();
 		return clone;
 	}
 	/**
@@ -81,13 +109,58 @@ public class VRPSolution implements ISolution {
 		return this.cloneRoutes();
 	}
 	/**
-	 * Returns a copy of the route in position <code>i</code> in the solution
+	 * Returns a copy of the route in position <code>i</code> in the solution. The copy runs in O(n); client classes that only need
+	 * to read the route should use {@link #getRouteView(int)} or the accessors by route index (e.g., {@link #getNode(int, int)}).
 	 * @param r 
 	 * @return copy of the route in position <code>i</code> in the solution
 	 */
 	public IRoute getRoute(int r){
 		return routes.get(r).clone();
 	}
+	/**
+	 * Returns a read-only view of the route in position <code>r</code>. Unlike {@link #getRoute(int)} the route is not copied:
+	 * the view reflects later changes to the solution and any attempt to modify it through the view throws an
+	 * {@link UnsupportedOperationException}. Use {@link #getLoad(int)} and {@link #getCost(int)} for the load and cost of the route.
+	 * @param r the route index
+	 * @return a read-only view of route <code>r</code>
+	 */
+	public IRoute getRouteView(int r){
+		return new UnmodifiableRoute(routes.get(r));
+	}
+	/**
+	 * Returns a read-only view of the routes in the solution. Routes are wrapped up on access, no route is copied.
+	 * @return a read-only view of the list of routes
+	 * @see #getRouteView(int)
+	 */
+	public List<IRoute> getRouteViews(){
+		return new AbstractList<IRoute>(){
+			@Override
+			public IRoute get(int r) {
+				return getRouteView(r);
+			}
+			@Override
+			public int size() {
+				return routes.size();
+			}
+		};
+	}
+	/**
+	 * 
+	 * @param r the route index
+	 * @return the first node visited by the route (position 1, i.e., right after the depot)
+	 */
+	public int getFirstCustomer(int r){
+		return this.routes.get(r).get(1);
+	}
+	/**
+	 * 
+	 * @param r the route index
+	 * @return the last node visited by the route (position <code>size(r)-2</code>, i.e., right before the depot)
+	 */
+	public int getLastCustomer(int r){
+		IRoute route=this.routes.get(r);
+		return route.get(route.size()-2);
+	}
 	/**
 	 * Sets the set of routes in the solution. For encapsulation purposes the method makes calls {@link #clone()} on each route 
 	 * @param routes
@@ -96,13 +169,16 @@ public class VRPSolution implements ISolution {
 		this.routes=new ArrayList<>();
 		for(IRoute r:routes)
 			this.routes.add(r.clone());
+		this.rebuildIndex();
 	}
 	/**
 	 * Adds a route to the solution.
 	 * @param r the route to add
 	 */
 	public void addRoute(final IRoute r){
-		this.routes.add(r.clone());
+		IRoute clone=r.clone();
+		this.routes.add(clone);
+		this.indexRoute(clone, this.routes.size()-1);
 	}
 	/**
 	 * Inserts a route into a specific position of the solution
@@ -110,7 +186,23 @@ public class VRPSolution implements ISolution {
 	 * @param i the position in which the route must be inserted
 	 */
 	public void insertRoute(final IRoute r, int i){
+		if(i<this.routes.size())
+			this.shiftIndex(i, 1);
 		this.routes.add(i, r);
+		this.indexRoute(r, i);
+	}
+	/**
+	 * Replaces the route in position <code>r</code>. Like {@link #insertRoute(IRoute, int)} the route is not copied; it
+	 * must be a {@link VRPRoute} holding its load and cost.
+	 * @param r the index of the route to replace
+	 * @param route the new route
+	 * @return the replaced route
+	 */
+	public IRoute setRoute(int r, IRoute route){
+		IRoute replaced=this.routes.set(r, route);
+		replaced.forEach(unindex);
+		this.indexRoute(route, r);
+		return replaced;
 	}
 	/**
 	 * 
@@ -153,7 +245,37 @@ public class VRPSolution implements ISolution {
 	 * @return the removed route
 	 */
 	public IRoute remove(int r){
-		return this.routes.remove(r); //need no cloning since the route no longer defines the state of this route solution object
+		IRoute removed=this.routes.remove(r); //need no cloning since the route no longer defines the state of this route solution object
+		if(r<this.routes.size())
+			this.shiftIndex(r+1, -1);
+		removed.forEach(unindex);
+		return removed;
+	}
+	/**
+	 * Removes route <code>r</code> from the solution and moves the last route to position <code>r</code> (unless
+	 * <code>r</code> is the last route). Unlike {@link #remove(int)} the node index is updated for the nodes of the
+	 * removed route and of the moved route only, instead of every node after <code>r</code>.</br>
+	 * 
+	 * <strong>Examples</strong><br>
+	 * 
+	 * Assume the current solution <code>s</code> has three routes <code>{0,3,4,0}</code>, <code>{0,5,0}</code> and <code>{0,2,1,0}</code>.</br>
+	 * 
+	 * <code>swapRemove(0)</code> leads to <code>s={{0,2,1,0},{0,5,0}}</code>.</br>
+	 * 
+	 * @param r the index of the route to remove
+	 * @return the removed route
+	 */
+	public IRoute swapRemove(int r){
+		int last=this.routes.size()-1;
+		IRoute removed=this.routes.get(r);
+		IRoute moved=this.routes.remove(last);
+		if(r<last){
+			this.routes.set(r, moved);
+			relabel.target=r;
+			moved.forEach(relabel);
+		}
+		removed.forEach(unindex);
+		return removed;
 	}
 	/**
 	 * Removes the node in position <code>i</code> of route <code>r</code>
@@ -176,7 +298,9 @@ public class VRPSolution implements ISolution {
 	 * @return the ID of the removed node
 	 */
 	public int remove(int r, int i){
-		return this.routes.get(r).remove(i);
+		int node=this.routes.get(r).remove(i);
+		this.unindexNode(node);
+		return node;
 	}
 	/**
 	 * Inserts <code>node</code> in position <code>i</code> of route <code>r</code></br>
@@ -204,6 +328,41 @@ public class VRPSolution implements ISolution {
 			this.routes.get(r).add(node);
 		else
 			this.routes.get(r).insert(node, i);
+		this.indexNode(node, r);
+	}
+	/**
+	 * Appends the nodes of route <code>other</code> at the end of route <code>r</code> and removes route <code>other</code>
+	 * from the solution. Both routes must be {@link VRPRoute}s; when they are backed by {@link LinkedRoute}s the nodes
+	 * are moved in O(1).</br>
+	 * 
+	 * <strong>Examples</strong><br>
+	 * 
+	 * Assume the current solution <code>s</code> has two routes <code>{0,3,4,5}</code> and <code>{2,1,0}</code>.</br>
+	 * 
+	 * <code>append(0,1)</code> leads to <code>s={{0,3,4,5,2,1,0}}</code></br>
+	 * 
+	 * Note that the load and cost of route <code>r</code> are not updated, and that the last route of the solution
+	 * takes position <code>other</code> (unless <code>other</code> is the last route), so that only the nodes of the
+	 * appended route and of the moved route are relabelled in the node index instead of every node after
+	 * <code>other</code>. When route <code>r</code> is the last route, the extended route moves to position
+	 * <code>other</code>.
+	 * 
+	 * @param r the route to extend
+	 * @param other the route to append
+	 */
+	public void append(int r, int other){
+		VRPRoute target=(VRPRoute)this.routes.get(r);
+		VRPRoute source=(VRPRoute)this.routes.get(other);
+		relabel.target=r;
+		source.forEach(relabel);
+		target.append(source);
+		int last=this.routes.size()-1;
+		IRoute moved=this.routes.remove(last);
+		if(other<last){
+			this.routes.set(other, moved);
+			relabel.target=other;
+			moved.forEach(relabel);
+		}
 	}
 	/**
 	 * Removes from the solution every route <code>r</code> with <code>r.size()==size</code>
@@ -216,6 +375,7 @@ public class VRPSolution implements ISolution {
 				r--;
 			}
 		}
+		this.rebuildIndex();
 	}
 	
 	@Override
@@ -240,28 +400,42 @@ public class VRPSolution implements ISolution {
 	}
 	
 	/**
-	 * to verify if the current node is already included in one existing route
+	 * to verify if the current node is already included in one existing route. Runs in O(1) using the node index.
 	 * @param nodeId
 	 * @return true if the node exists
 	 */
 	public boolean containsNode(int nodeId){
-		boolean exist = false;
-		for(int i=0; i<this.routes.size(); i++){
-			if(routes.get(i).contains(nodeId)){
-				exist = true;
-				break;
-			}
-		}
-		
-		return exist;
+		return nodeId>=0 && nodeId<occurrences.length && occurrences[nodeId]>0;
 	}
 	
 	/**
-	 * to get the id of route which contains the node we look for
+	 * to get the id of route which contains the node we look for. Runs in O(1) for nodes visited by a single route; 
+	 * for nodes shared by several routes (e.g., the depot) the first route containing the node is returned.
 	 * @param nodeId
 	 * @return the route id with the node, -1 if not found
 	 */
 	public int getRouteIdByNodeId(int nodeId){
+		if(!containsNode(nodeId))
+			return -1;
+		if(occurrences[nodeId]==1)
+			return routeOf[nodeId];
+		return scanRouteIdByNodeId(nodeId);
+	}
+	
+	/**
+	 * to reverse one certain route in the solution
+	 * @param r id of route to reverse
+	 */
+	public void reverse(int r){
+		this.routes.get(r).reverse();
+	}
+	
+	/**
+	 * Internal method to find the first route containing a node by scanning the routes
+	 * @param nodeId
+	 * @return the route id with the node, -1 if not found
+	 */
+	private int scanRouteIdByNodeId(int nodeId){
 		for(int i=0; i<routes.size(); i++){
 			if(routes.get(i).contains(nodeId)){
 				return i;
@@ -271,10 +445,88 @@ public class VRPSolution implements ISolution {
 	}
 	
 	/**
-	 * to reverse one certain route in the solution
-	 * @param r id of route to reverse
+	 * Internal method registering one occurrence of a node in route <code>r</code>
+	 * @param nodeId the node
+	 * @param r the route index
 	 */
-	public void reverse(int r){
-		this.routes.get(r).reverse();
+	private void indexNode(int nodeId, int r){
+		if(nodeId>=occurrences.length){
+			int length=Math.max(nodeId+1, 2*occurrences.length);
+			occurrences=Arrays.copyOf(occurrences, length);
+			routeOf=Arrays.copyOf(routeOf, length);
+		}
+		if(++occurrences[nodeId]==1)
+			routeOf[nodeId]=r;
+	}
+	
+	/**
+	 * Internal method unregistering one occurrence of a node. Must be called after the node has been removed from its route.
+	 * @param nodeId the node
+	 */
+	private void unindexNode(int nodeId){
+		if(--occurrences[nodeId]==1)
+			routeOf[nodeId]=scanRouteIdByNodeId(nodeId);
+	}
+	
+	/**
+	 * Internal method registering every node of a route
+	 * @param route the route
+	 * @param r the index of the route in the solution
+	 */
+	private void indexRoute(IRoute route, int r){
+		index.target=r;
+		route.forEach(index);
+	}
+	
+	/**
+	 * Internal method shifting the route index of every node visited by a route in position <code>from</code> or after
+	 * @param from the first route index to shift
+	 * @param delta the shift
+	 */
+	private void shiftIndex(int from, int delta){
+		for(int i=0;i<occurrences.length;i++){
+			if(occurrences[i]==1 && routeOf[i]>=from)
+				routeOf[i]+=delta;
+		}
+	}
+	
+	/**
+	 * Internal method rebuilding the node index from scratch
+	 */
+	private void rebuildIndex(){
+		Arrays.fill(occurrences, 0);
+		for(int r=0;r<routes.size();r++)
+			this.indexRoute(routes.get(r), r);
+	}
+	
+	/**
+	 * Moves each node it accepts to route {@link #target} in the node index
+	 */
+	private class Relabel implements IntConsumer{
+		/**
+		 * the index of the route receiving the nodes
+		 */
+		private int target;
+		
+		@Override
+		public void accept(int node){
+			if(occurrences[node]==1)
+				routeOf[node]=target;
+		}
+	}
+	
+	/**
+	 * Registers each node it accepts in route {@link #target} of the node index
+	 */
+	private class Index implements IntConsumer{
+		/**
+		 * the index of the route visiting the nodes
+		 */
+		private int target;
+		
+		@Override
+		public void accept(int node){
+			indexNode(node, target);
+		}
 	}
 }
@@ -0,0 +1,199 @@
+package com.polytechtours.vrp.data;
+
+import java.util.Arrays;
+
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Implements a distance matrix that does not store any distance: only the node coordinates are kept, and Euclidean
+ * distances are computed on demand with {@link EuclideanCalculator#calc(double, double, double, double)}, so they are
+ * identical to those of a matrix built with {@link EuclideanCalculator#calc(double[][])}. The matrix therefore takes
+ * O(n) memory instead of O(n<sup>2</sup>).</br>
+ * To avoid recomputing the distances of frequently used nodes (e.g., the depot or the endpoints of the current routes),
+ * each thread keeps a small cache of full rows. A row is computed and cached once it has been requested n times without
+ * being in the cache, i.e., once computing its distances one by one has cost as much as computing the whole row, and the
+ * least recently used row is evicted when the cache is full. This admission rule keeps scans that request each row
+ * fewer than n times (e.g., the generation of the savings) from flushing the cache, and at most doubles the work of a
+ * matrix without cache. Since the matrix is symmetric, a distance is served from the row of either of its nodes.</br>
+ * The matrix is read-only: {@link #setDistance(int, int, double)} throws an {@link UnsupportedOperationException}.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 29, 2018
+ *
+ */
+public class CoordinateDistanceMatrix implements IDistanceMatrix {
+	/**
+	 * Default number of rows held by the cache of a thread
+	 */
+	public static final int DEFAULT_CACHE_ROWS = 16;
+
+	/**
+	 * The coordinates of the nodes on the x axis
+	 */
+	private final double[] x;
+	/**
+	 * The coordinates of the nodes on the y axis
+	 */
+	private final double[] y;
+	/**
+	 * The maximum number of rows held by the cache of a thread
+	 */
+	private final int cacheRows;
+	/**
+	 * The row cache of each thread
+	 */
+	private final ThreadLocal<RowCache> cache;
+
+	/**
+	 * Constructs a new distance matrix with a cache of {@link #DEFAULT_CACHE_ROWS} rows
+	 * @param coordinates the coordinates, one row per node with the x and y coordinates
+	 */
+	public CoordinateDistanceMatrix(double[][] coordinates){
+		this(coordinates, DEFAULT_CACHE_ROWS);
+	}
+
+	/**
+	 * Constructs a new distance matrix
+	 * @param coordinates the coordinates, one row per node with the x and y coordinates
+	 * @param cacheRows the maximum number of rows held by the cache of a thread (0 disables the cache)
+	 */
+	public CoordinateDistanceMatrix(double[][] coordinates, int cacheRows){
+		if(coordinates[0].length!=2)
+			throw new IllegalArgumentException("argument coordinates must be a matrix with 2 columns and an open number of files");
+		if(cacheRows<0)
+			throw new IllegalArgumentException("argument cacheRows must be positive (passed "+cacheRows+")");
+		int n=coordinates.length;
+		this.x=new double[n];
+		this.y=new double[n];
+		for(int i=0;i<n;i++){
+			this.x[i]=coordinates[i][0];
+			this.y[i]=coordinates[i][1];
+		}
+		this.cacheRows=cacheRows;
+		this.cache=ThreadLocal.withInitial(() -> new RowCache(n, cacheRows));
+	}
+
+	@Override
+	public double getDistance(int i, int j) {
+		if(cacheRows==0)
+			return compute(i, j);
+		return cache.get().distance(i, j);
+	}
+
+	/**
+	 * @return the distance between nodes <code>i</code> and <code>j</code>, computed in the same order as
+	 * {@link EuclideanCalculator#calc(double[][])}
+	 */
+	private double compute(int i, int j){
+		if(i==j)
+			return 0;
+		if(i>j){
+			int temp=i;
+			i=j;
+			j=temp;
+		}
+		return EuclideanCalculator.calc(x[i], y[i], x[j], y[j]);
+	}
+
+	/**
+	 * Not supported: the distances are given by the coordinates
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setDistance(int i, int j, double distance) {
+		throw new UnsupportedOperationException("the distances of a coordinate-backed matrix cannot be set");
+	}
+
+	@Override
+	public int size() {
+		return x.length;
+	}
+
+	/**
+	 * A least recently used cache of full rows of the matrix, used by a single thread
+	 */
+	private final class RowCache {
+		/**
+		 * The cached rows
+		 */
+		private final double[][] rows;
+		/**
+		 * The node of each cached row (-1 for a free slot)
+		 */
+		private final int[] nodeOf;
+		/**
+		 * The time of the last use of each cached row
+		 */
+		private final long[] lastUse;
+		/**
+		 * The slot of each node's row in the cache (-1 if the row is not cached)
+		 */
+		private final int[] slotOf;
+		/**
+		 * The number of requests to each row outside the cache since it was last evicted (or since the start)
+		 */
+		private final int[] misses;
+		/**
+		 * The logical clock used to order the uses of the rows
+		 */
+		private long clock=0;
+
+		private RowCache(int n, int capacity){
+			this.rows=new double[capacity][];
+			this.nodeOf=new int[capacity];
+			this.lastUse=new long[capacity];
+			this.slotOf=new int[n];
+			this.misses=new int[n];
+			Arrays.fill(nodeOf, -1);
+			Arrays.fill(slotOf, -1);
+		}
+
+		/**
+		 * Reads the distance from the row of <code>i</code> or <code>j</code> if one of them is cached, caching the row of
+		 * <code>i</code> if it has become hot, or computes it otherwise
+		 * @return the distance between nodes <code>i</code> and <code>j</code>
+		 */
+		private double distance(int i, int j){
+			int slot=slotOf[i];
+			int column=j;
+			if(slot<0){
+				slot=slotOf[j];
+				column=i;
+			}
+			if(slot<0){
+				if(++misses[i]<x.length)
+					return compute(i, j);
+				slot=load(i);
+				column=j;
+			}
+			lastUse[slot]=++clock;
+			return rows[slot][column];
+		}
+
+		/**
+		 * Computes the row of a node and stores it in the cache, evicting the least recently used row if needed
+		 * @return the slot of the row
+		 */
+		private int load(int i){
+			int slot=0;
+			for(int s=1;s<rows.length && nodeOf[slot]>=0;s++){
+				if(nodeOf[s]<0 || lastUse[s]<lastUse[slot])
+					slot=s;
+			}
+			if(nodeOf[slot]>=0){
+				slotOf[nodeOf[slot]]=-1;
+				misses[nodeOf[slot]]=0;
+			}else{
+				rows[slot]=new double[x.length];
+			}
+			double[] row=rows[slot];
+			for(int j=0;j<row.length;j++)
+				row[j]=compute(i, j);
+			nodeOf[slot]=i;
+			slotOf[i]=slot;
+			misses[i]=0;
+			return slot;
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.polytechtours.vrp.data;
+
+import java.util.Arrays;
+
+/**
+ * Implements the demands using an array that grows as nodes are added, e.g., as orders arrive. Nodes are numbered in
+ * the order in which they are added.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class GrowableDemands implements IDemands {
+
+	/**
+	 * Stores the demands in positions 0 to {@link #n}-1
+	 */
+	private double[] demands;
+	/**
+	 * The number of nodes
+	 */
+	private int n;
+
+	/**
+	 * Constructs the demands of a set of nodes
+	 * @param demands the demands
+	 */
+	public GrowableDemands(double[] demands){
+		this.demands=Arrays.copyOf(demands, Math.max(16, demands.length));
+		this.n=demands.length;
+	}
+
+	/**
+	 * Adds a node
+	 * @param demand the demand of the node
+	 * @return the ID of the node
+	 */
+	public int add(double demand){
+		if(n==demands.length)
+			demands=Arrays.copyOf(demands, 2*n);
+		demands[n]=demand;
+		return n++;
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size(){
+		return n;
+	}
+
+	@Override
+	public double getDemand(int i) {
+		if(i>=n)
+			throw new IndexOutOfBoundsException("node "+i+" (size "+n+")");
+		return this.demands[i];
+	}
+
+	@Override
+	public void setDemand(int i, double demand) {
+		if(i>=n)
+			throw new IndexOutOfBoundsException("node "+i+" (size "+n+")");
+		this.demands[i]=demand;
+	}
+
+	@Override
+	public void setDemands(double[] demands) {
+		for(int i=0;i<demands.length;i++)
+			setDemand(i, demands[i]);
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.polytechtours.vrp.data;
+
+import java.util.Arrays;
+
+/**
+ * Implements a symmetric matrix of Euclidean distances to which nodes can be added one at a time, e.g., as orders arrive.
+ * Row <code>i</code> holds the distances from node <code>i</code> to nodes <code>0</code> to <code>i-1</code> (lower
+ * triangle); adding a node computes its row from the coordinates of the nodes already in the matrix in O(n), and the
+ * rows already built are neither copied nor recomputed. The distances are exactly those of
+ * {@link com.polytechtours.vrp.util.EuclideanCalculator}.</br>
+ * Nodes are numbered in the order in which they are added and are never removed.</br>
+ * The distances between nodes already added can be read by other threads while nodes are added: a row never changes
+ * once added (unless {@link #setDistance(int, int, double)} is called), and the table of rows is published through a
+ * volatile field after it is filled, so a reader that knows a node (e.g., through a lock held when the node was seen)
+ * also sees its row.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class GrowableDistanceMatrix implements IDistanceMatrix {
+	/**
+	 * The number of nodes
+	 */
+	private int n;
+	/**
+	 * The coordinates of the nodes on the x axis
+	 */
+	private double[] x;
+	/**
+	 * The coordinates of the nodes on the y axis
+	 */
+	private double[] y;
+	/**
+	 * The rows of the lower triangle
+	 */
+	private volatile double[][] rows;
+
+	/**
+	 * Constructs a matrix holding a set of nodes
+	 * @param x the coordinates of the nodes on the x axis
+	 * @param y the coordinates of the nodes on the y axis
+	 */
+	public GrowableDistanceMatrix(double[] x, double[] y){
+		if(x.length!=y.length)
+			throw new IllegalArgumentException("arguments x and y must have the same length (passed "+x.length+" and "+y.length+")");
+		int capacity=Math.max(16, x.length);
+		this.x=new double[capacity];
+		this.y=new double[capacity];
+		this.rows=new double[capacity][];
+		for(int i=0;i<x.length;i++)
+			add(x[i], y[i]);
+	}
+
+	/**
+	 * Adds a node
+	 * @param cx the coordinate of the node on the x axis
+	 * @param cy the coordinate of the node on the y axis
+	 * @return the ID of the node
+	 */
+	public int add(double cx, double cy){
+		double[][] table=rows;
+		if(n==table.length){
+			x=Arrays.copyOf(x, 2*n);
+			y=Arrays.copyOf(y, 2*n);
+			table=Arrays.copyOf(table, 2*n);
+		}
+		double[] row=new double[n];
+		for(int j=0;j<n;j++){
+			double dx=cx-x[j];
+			double dy=cy-y[j];
+			row[j]=Math.sqrt(dx*dx+dy*dy);
+		}
+		x[n]=cx;
+		y[n]=cy;
+		table[n]=row;
+		rows=table;
+		return n++;
+	}
+
+	/**
+	 * @param i the ID of a node
+	 * @return the coordinates of node <code>i</code>
+	 */
+	public double[] getCoordinates(int i){
+		return new double[]{x[i], y[i]};
+	}
+
+	@Override
+	public double getDistance(int i, int j) {
+		if(i==j)
+			return 0;
+		return i>j?rows[i][j]:rows[j][i];
+	}
+
+	@Override
+	public void setDistance(int i, int j, double distance) {
+		if(i==j){
+			if(distance!=0)
+				throw new IllegalArgumentException("the distance from a node to itself must be 0 (passed "+distance+")");
+			return;
+		}
+		if(i>j)
+			rows[i][j]=distance;
+		else
+			rows[j][i]=distance;
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.polytechtours.vrp.data;
+
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Defines the interface to instance readers. The distance matrices are Euclidean and derived from the node coordinates.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 1, 2018
+ *
+ */
+public interface IInstanceReader extends AutoCloseable {
+	/**
+	 * @return the coordinates, one row per node (indexed by node ID) with the x and y coordinates
+	 */
+	public double[][] getCoordinates();
+	/**
+	 * @return the customer demands
+	 */
+	public IDemands getDemands();
+	/**
+	 * @param type the type of vehicle
+	 * @return the capacity of the vehicles of type <code>type</code>, or <code>NaN</code> if there is no such type
+	 */
+	public double getCapacity(String type);
+
+	/**
+	 * @return the distance matrix
+	 */
+	public default IDistanceMatrix getDistanceMatrix(){
+		return new ArrayDistanceMatrix(EuclideanCalculator.calc(getCoordinates()));
+	}
+	/**
+	 * @param singlePrecision true to store the distances as <code>float</code>
+	 * @return the distance matrix packed in a {@link TriangularDistanceMatrix}, which takes half (double precision) or a
+	 * quarter (single precision) of the memory of {@link #getDistanceMatrix()}
+	 */
+	public default IDistanceMatrix getPackedDistanceMatrix(boolean singlePrecision){
+		return new TriangularDistanceMatrix(getCoordinates(), singlePrecision);
+	}
+	/**
+	 * @return a {@link CoordinateDistanceMatrix}, which keeps the node coordinates and computes the distances on demand
+	 * instead of storing them
+	 */
+	public default IDistanceMatrix getCoordinateDistanceMatrix(){
+		return new CoordinateDistanceMatrix(getCoordinates());
+	}
+
+	@Override
+	public void close();
+
+}
@@ -0,0 +1,32 @@
+package com.polytechtours.vrp.data;
+
+/**
+ * Defines the interface to a sorted list of savings, as stored in an {@link InstanceSnapshot}. Savings are accessed by
+ * rank.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 2, 2018
+ *
+ */
+public interface ISavings {
+	/**
+	 * @return the number of savings
+	 */
+	public int size();
+	/**
+	 * @param k the rank of the saving
+	 * @return the id of first node of the saving
+	 */
+	public int getSourceId(int k);
+	/**
+	 * @param k the rank of the saving
+	 * @return the id of second node of the saving
+	 */
+	public int getTargetId(int k);
+	/**
+	 * @param k the rank of the saving
+	 * @return the value of the saving (in single precision)
+	 */
+	public float getSaving(int k);
+
+}
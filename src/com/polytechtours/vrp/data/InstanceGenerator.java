@@ -0,0 +1,342 @@
+package com.polytechtours.vrp.data;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Generates random CVRP instances and writes them in the VRP-REP format read by {@link VRPREPInstanceReader} and
+ * {@link VRPREPStreamReader}, with the layout of the CMT files: customers <code>1</code> to <code>n</code>, depot
+ * <code>n+1</code>, one vehicle profile of type <code>0</code>. Customers lie on a square grid and are either uniformly
+ * distributed, grouped around cluster centres, or half and half; the depot is in the centre, in a corner or at a random
+ * position.</br>
+ * Generation is streamed: customers and demands are drawn while the file is written (from two generators seeded by
+ * the seed of the instance), so memory does not depend on the number of customers and the same seed always gives the
+ * same file.</br>
+ * Usage: <code>InstanceGenerator customers seed [uniform|clustered|mixed] [center|corner|random] [unit|small|large|variable] [capacity] file</code>
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class InstanceGenerator {
+
+	/**
+	 * The spatial distribution of the customers
+	 */
+	public enum Distribution {
+		/** customers uniformly distributed on the grid */
+		UNIFORM,
+		/** customers normally distributed around uniformly distributed cluster centres */
+		CLUSTERED,
+		/** half of the customers uniformly distributed, the other half clustered */
+		MIXED
+	}
+
+	/**
+	 * The position of the depot
+	 */
+	public enum DepotPosition {
+		/** the centre of the grid */
+		CENTER,
+		/** the lower left corner of the grid */
+		CORNER,
+		/** a uniformly distributed position */
+		RANDOM
+	}
+
+	/**
+	 * The distribution of the demands
+	 */
+	public enum DemandDistribution {
+		/** every demand is 1 */
+		UNIT(1, 1),
+		/** demands uniformly distributed in [1, 10] */
+		SMALL(1, 10),
+		/** demands uniformly distributed in [50, 100] */
+		LARGE(50, 100),
+		/** demands uniformly distributed in [1, 100] */
+		VARIABLE(1, 100);
+
+		private final int min;
+		private final int max;
+
+		private DemandDistribution(int min, int max){
+			this.min=min;
+			this.max=max;
+		}
+
+		private double draw(Random rnd){
+			return min+rnd.nextInt(max-min+1);
+		}
+
+		private double mean(){
+			return (min+max)/2.0;
+		}
+	}
+
+	/**
+	 * The number of customers
+	 */
+	private final int customers;
+	/**
+	 * The seed of the instance
+	 */
+	private final long seed;
+	/**
+	 * The spatial distribution of the customers
+	 */
+	private Distribution distribution=Distribution.UNIFORM;
+	/**
+	 * The position of the depot
+	 */
+	private DepotPosition depot=DepotPosition.CENTER;
+	/**
+	 * The distribution of the demands
+	 */
+	private DemandDistribution demands=DemandDistribution.VARIABLE;
+	/**
+	 * The vehicle capacity, <code>NaN</code> for the default capacity
+	 */
+	private double capacity=Double.NaN;
+	/**
+	 * The number of cluster centres
+	 */
+	private int clusters=8;
+	/**
+	 * The side of the grid
+	 */
+	private double side=1000;
+
+	/**
+	 * Constructs a generator of uniformly distributed customers with a central depot and demands in [1, 100]
+	 * @param customers the number of customers
+	 * @param seed the seed of the instance
+	 */
+	public InstanceGenerator(int customers, long seed){
+		if(customers<1)
+			throw new IllegalArgumentException("argument customers must be positive (passed "+customers+")");
+		this.customers=customers;
+		this.seed=seed;
+	}
+
+	public void setDistribution(Distribution distribution) {
+		this.distribution=distribution;
+	}
+
+	public void setDepotPosition(DepotPosition depot) {
+		this.depot=depot;
+	}
+
+	public void setDemandDistribution(DemandDistribution demands) {
+		this.demands=demands;
+	}
+
+	/**
+	 * @param capacity the vehicle capacity. By default, the capacity is the expected demand of 10 customers (rounded up)
+	 */
+	public void setCapacity(double capacity) {
+		this.capacity=capacity;
+	}
+
+	/**
+	 * @param clusters the number of cluster centres of clustered customers (8 by default)
+	 */
+	public void setClusters(int clusters) {
+		if(clusters<1)
+			throw new IllegalArgumentException("argument clusters must be positive (passed "+clusters+")");
+		this.clusters=clusters;
+	}
+
+	/**
+	 * @param side the side of the grid (1000 by default)
+	 */
+	public void setSide(double side) {
+		this.side=side;
+	}
+
+	/**
+	 * @return the vehicle capacity of the instances
+	 */
+	public double getCapacity(){
+		return Double.isNaN(capacity)?Math.ceil(10*demands.mean()):capacity;
+	}
+
+	/**
+	 * Generates the instance and writes it
+	 * @param pathname the path to the file, replaced if it exists
+	 */
+	public void write(String pathname){
+		try(OutputStream out=new BufferedOutputStream(new FileOutputStream(pathname), 1<<16)){
+			write(out);
+		}catch(IOException e){
+			throw new IllegalStateException("The instance file cannot be written", e);
+		}
+	}
+
+	/**
+	 * Generates the instance and writes it to a stream
+	 * @param out the stream, left open
+	 */
+	public void write(OutputStream out){
+		Random rnd=new Random(seed);
+		double[][] centres=new double[clusters][];
+		for(int c=0;c<clusters;c++)
+			centres[c]=new double[]{rnd.nextDouble()*side, rnd.nextDouble()*side};
+		double[] depotXY;
+		switch(depot){
+		case CORNER:
+			depotXY=new double[]{0, 0};
+			break;
+		case RANDOM:
+			depotXY=new double[]{rnd.nextDouble()*side, rnd.nextDouble()*side};
+			break;
+		default:
+			depotXY=new double[]{side/2, side/2};
+			break;
+		}
+
+		try{
+			XMLStreamWriter xml=XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+			xml.writeStartDocument("UTF-8", "1.0");
+			newLine(xml, 0);
+			xml.writeStartElement("instance");
+			newLine(xml, 1);
+			xml.writeStartElement("info");
+			newLine(xml, 2);
+			element(xml, "dataset", "Synthetic");
+			newLine(xml, 2);
+			element(xml, "name", getName());
+			newLine(xml, 1);
+			xml.writeEndElement();
+			newLine(xml, 1);
+			xml.writeStartElement("network");
+			newLine(xml, 2);
+			xml.writeStartElement("nodes");
+			for(int i=1;i<=customers;i++){
+				boolean clustered=distribution==Distribution.CLUSTERED || (distribution==Distribution.MIXED && rnd.nextBoolean());
+				node(xml, i, 1, clustered?around(centres[rnd.nextInt(clusters)], rnd):new double[]{rnd.nextDouble()*side, rnd.nextDouble()*side});
+			}
+			node(xml, customers+1, 0, depotXY);
+			newLine(xml, 2);
+			xml.writeEndElement();
+			newLine(xml, 1);
+			xml.writeEndElement();
+
+			newLine(xml, 1);
+			xml.writeStartElement("fleet");
+			newLine(xml, 2);
+			xml.writeStartElement("vehicle_profile");
+			xml.writeAttribute("type", "0");
+			newLine(xml, 3);
+			element(xml, "departure_node", String.valueOf(customers+1));
+			newLine(xml, 3);
+			element(xml, "arrival_node", String.valueOf(customers+1));
+			newLine(xml, 3);
+			element(xml, "capacity", String.valueOf(getCapacity()));
+			newLine(xml, 2);
+			xml.writeEndElement();
+			newLine(xml, 1);
+			xml.writeEndElement();
+
+			Random demandRnd=new Random(~seed);
+			newLine(xml, 1);
+			xml.writeStartElement("requests");
+			for(int i=1;i<=customers;i++){
+				newLine(xml, 2);
+				xml.writeStartElement("request");
+				xml.writeAttribute("id", String.valueOf(i-1));
+				xml.writeAttribute("node", String.valueOf(i));
+				newLine(xml, 3);
+				element(xml, "quantity", String.valueOf(demands.draw(demandRnd)));
+				newLine(xml, 2);
+				xml.writeEndElement();
+			}
+			newLine(xml, 1);
+			xml.writeEndElement();
+			newLine(xml, 0);
+			xml.writeEndElement();
+			newLine(xml, 0);
+			xml.writeEndDocument();
+			xml.flush();
+			xml.close();
+		}catch(XMLStreamException e){
+			throw new IllegalStateException("The instance cannot be written", e);
+		}
+	}
+
+	/**
+	 * @return the name of the instances, e.g., <code>U1000-mixed-center-variable-s42</code>
+	 */
+	public String getName(){
+		return "U"+customers+"-"+distribution.name().toLowerCase()+"-"+depot.name().toLowerCase()+"-"+demands.name().toLowerCase()+"-s"+seed;
+	}
+
+	/**
+	 * Draws a position normally distributed around a cluster centre, within the grid
+	 */
+	private double[] around(double[] centre, Random rnd){
+		double spread=side/25;
+		return new double[]{clamp(centre[0]+rnd.nextGaussian()*spread), clamp(centre[1]+rnd.nextGaussian()*spread)};
+	}
+
+	private double clamp(double v){
+		return Math.max(0, Math.min(side, v));
+	}
+
+	private static void node(XMLStreamWriter xml, int id, int type, double[] xy) throws XMLStreamException{
+		newLine(xml, 3);
+		xml.writeStartElement("node");
+		xml.writeAttribute("id", String.valueOf(id));
+		xml.writeAttribute("type", String.valueOf(type));
+		newLine(xml, 4);
+		element(xml, "cx", String.valueOf(xy[0]));
+		newLine(xml, 4);
+		element(xml, "cy", String.valueOf(xy[1]));
+		newLine(xml, 3);
+		xml.writeEndElement();
+	}
+
+	private static void element(XMLStreamWriter xml, String name, String text) throws XMLStreamException{
+		xml.writeStartElement(name);
+		xml.writeCharacters(text);
+		xml.writeEndElement();
+	}
+
+	/**
+	 * Starts a new line indented by <code>depth</code> levels of 4 spaces
+	 */
+	private static void newLine(XMLStreamWriter xml, int depth) throws XMLStreamException{
+		xml.writeCharacters("\n");
+		for(int d=0;d<depth;d++)
+			xml.writeCharacters("    ");
+	}
+
+	public static void main(String[] args){
+		if(args.length<3){
+			System.out.println("Usage: InstanceGenerator customers seed [uniform|clustered|mixed] [center|corner|random] [unit|small|large|variable] [capacity] file");
+			return;
+		}
+		InstanceGenerator generator=new InstanceGenerator(Integer.parseInt(args[0]), Long.parseLong(args[1]));
+		int a=2;
+		for(;a<args.length-1;a++){
+			String option=args[a].toUpperCase();
+			if(option.equals("UNIFORM") || option.equals("CLUSTERED") || option.equals("MIXED"))
+				generator.setDistribution(Distribution.valueOf(option));
+			else if(option.equals("CENTER") || option.equals("CORNER") || option.equals("RANDOM"))
+				generator.setDepotPosition(DepotPosition.valueOf(option));
+			else if(option.equals("UNIT") || option.equals("SMALL") || option.equals("LARGE") || option.equals("VARIABLE"))
+				generator.setDemandDistribution(DemandDistribution.valueOf(option));
+			else
+				generator.setCapacity(Double.parseDouble(args[a]));
+		}
+		generator.write(args[a]);
+	}
+
+}
@@ -0,0 +1,432 @@
+package com.polytechtours.vrp.data;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Reads an instance from a binary snapshot of a VRP-REP file, and writes such snapshots. A snapshot holds the
+ * coordinates, demands and vehicle capacities of the instance and, optionally, its distance matrix and its sorted
+ * savings, so that repeated runs on the same instance skip the XML parsing, the matrix construction and the savings
+ * generation. Snapshots are keyed by the SHA-256 hash of the XML file they were built from:
+ * {@link #open(String, String, boolean, Function)} rebuilds a snapshot whose hash does not match the current file.</br>
+ * Opening a snapshot only reads its header, coordinates, demands and capacities: the distance matrix is mapped in memory
+ * (see {@link MappedDistanceMatrix}) and the savings are only read by {@link #readSavings(int[], int[], float[])}. The
+ * savings are generated by the caller (see {@link ISavings}); the snapshot stores them as they are.</br>
+ * The file is laid out as follows, all values but the magic number being little-endian:
+ * <table>
+ * <tr><td>offset 0</td><td>int</td><td>magic number {@link #MAGIC}, big-endian so that the file starts with the ASCII
+ * characters <code>VRPS</code></td></tr>
+ * <tr><td>offset 4</td><td>int</td><td>format version ({@link #VERSION})</td></tr>
+ * <tr><td>offset 8</td><td>32 bytes</td><td>SHA-256 hash of the source XML file</td></tr>
+ * <tr><td>offset 40</td><td>int</td><td>number of nodes n</td></tr>
+ * <tr><td>offset 44</td><td>int</td><td>length m of the demand vector</td></tr>
+ * <tr><td>offset 48</td><td>int</td><td>number of vehicle types t</td></tr>
+ * <tr><td>offset 52</td><td>int</td><td>reserved (0)</td></tr>
+ * <tr><td>offset 56</td><td>long</td><td>position of the savings section, 0 if there is none</td></tr>
+ * <tr><td>offset 64</td><td>long</td><td>position of the distance matrix section, 0 if there is none</td></tr>
+ * <tr><td>offset 72</td><td></td><td>t vehicle types (int length of the UTF-8 type name, name, double capacity), then
+ * the n coordinates on the x axis, the n coordinates on the y axis and the m demands, as doubles</td></tr>
+ * <tr><td>savings section</td><td></td><td>int count, int reserved, then the source IDs and the target IDs as ints and the
+ * values as floats, in the order of the {@link ISavings} they were written from</td></tr>
+ * <tr><td>matrix section</td><td></td><td>a symmetric double precision matrix in the format of {@link MappedDistanceMatrix}</td></tr>
+ * </table>
+ * Sections start on 8-byte boundaries.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 2, 2018
+ *
+ */
+public class InstanceSnapshot implements IInstanceReader {
+	/**
+	 * The magic number starting every snapshot
+	 */
+	public static final int MAGIC = 0x56525053;
+	/**
+	 * The version of the format (2 since the savings are ranked on their single precision value, 3 since the magic
+	 * number is big-endian)
+	 */
+	public static final int VERSION = 3;
+	/**
+	 * The size of the header in bytes
+	 */
+	private static final int HEADER = 72;
+	/**
+	 * The maximum number of elements of an array read from a single mapping
+	 */
+	private static final int CHUNK = 1 << 26;
+
+	/**
+	 * The path to the snapshot
+	 */
+	private final String pathname;
+	/**
+	 * The hash of the source XML file
+	 */
+	private final byte[] hash;
+	/**
+	 * The coordinates of the nodes on the x axis
+	 */
+	private final double[] x;
+	/**
+	 * The coordinates of the nodes on the y axis
+	 */
+	private final double[] y;
+	/**
+	 * The demands, indexed by node ID
+	 */
+	private final double[] demands;
+	/**
+	 * The capacity of each type of vehicle
+	 */
+	private final Map<String, Double> capacities=new LinkedHashMap<>();
+	/**
+	 * The position of the savings section (0 if there is none)
+	 */
+	private final long savingsOffset;
+	/**
+	 * The position of the matrix section (0 if there is none)
+	 */
+	private final long matrixOffset;
+	/**
+	 * The number of savings (0 if there are none)
+	 */
+	private final int savingsCount;
+
+	/**
+	 * Loads a snapshot, without checking that it is up to date
+	 * @param pathname the path to the snapshot
+	 */
+	public InstanceSnapshot(String pathname){
+		this.pathname=pathname;
+		try(FileChannel channel=FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)){
+			ByteBuffer header=read(channel, 0, HEADER);
+			if(header.order(ByteOrder.BIG_ENDIAN).getInt()!=MAGIC)
+				throw new IllegalArgumentException("The file is not an instance snapshot");
+			int version=header.order(ByteOrder.LITTLE_ENDIAN).getInt();
+			if(version!=VERSION)
+				throw new IllegalArgumentException("Unsupported snapshot version "+version);
+			this.hash=new byte[32];
+			header.get(hash);
+			int n=header.getInt();
+			int m=header.getInt();
+			int types=header.getInt();
+			header.getInt();
+			this.savingsOffset=header.getLong();
+			this.matrixOffset=header.getLong();
+			this.savingsCount=savingsOffset>0?read(channel, savingsOffset, 4).getInt():0;
+
+			long end=savingsOffset>0?savingsOffset:matrixOffset>0?matrixOffset:channel.size();
+			ByteBuffer data=read(channel, HEADER, (int)(end-HEADER));
+			for(int t=0;t<types;t++){
+				byte[] name=new byte[data.getInt()];
+				data.get(name);
+				capacities.put(new String(name, StandardCharsets.UTF_8), data.getDouble());
+			}
+			this.x=new double[n];
+			this.y=new double[n];
+			this.demands=new double[m];
+			data.asDoubleBuffer().get(x).get(y).get(demands);
+		}catch(IOException e){
+			throw new IllegalStateException("The snapshot cannot be read", e);
+		}
+	}
+
+	/**
+	 * Opens the snapshot of an XML instance file, (re)building it first if it does not exist, if it was built from a
+	 * different version of the file (i.e., its hash does not match), or if it lacks a requested section. Snapshots are
+	 * replaced atomically, so concurrent processes never read a partially written snapshot. A rebuilt snapshot is
+	 * keyed by the hash of the very bytes it was parsed from.
+	 * @param xml the path to the VRP-REP instance file
+	 * @param pathname the path to the snapshot
+	 * @param withMatrix true if the snapshot must hold the distance matrix
+	 * @param savings the function generating the sorted savings from the distance matrix if the snapshot must hold them,
+	 * <code>null</code> otherwise
+	 * @return the snapshot
+	 */
+	public static InstanceSnapshot open(String xml, String pathname, boolean withMatrix, Function<IDistanceMatrix, ? extends ISavings> savings){
+		if(Files.exists(Paths.get(pathname))){
+			try{
+				InstanceSnapshot snapshot=new InstanceSnapshot(pathname);
+				if(Arrays.equals(snapshot.hash, hash(xml)) && (!withMatrix || snapshot.hasDistanceMatrix()) && (savings==null || snapshot.hasSavings()))
+					return snapshot;
+			}catch(IllegalArgumentException | IllegalStateException e){
+				//unreadable or from another version of the format: rebuilt below
+			}
+		}
+		MessageDigest digest=sha256();
+		VRPREPStreamReader reader;
+		try(InputStream in=new DigestInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(xml)), 1<<16), digest)){
+			reader=new VRPREPStreamReader(in);
+			drain(in);
+		}catch(IOException e){
+			throw new IllegalStateException("The instance file cannot be read", e);
+		}
+		write(reader, digest.digest(), pathname, withMatrix, savings);
+		return new InstanceSnapshot(pathname);
+	}
+
+	/**
+	 * Writes the snapshot of an instance
+	 * @param reader the reader of the instance
+	 * @param hash the hash of the source XML file (see {@link #hash(String)})
+	 * @param pathname the path to the snapshot, replaced if it exists
+	 * @param withMatrix true to store the distance matrix
+	 * @param savings the function generating the sorted savings from the distance matrix, <code>null</code> to store no
+	 * savings
+	 */
+	public static void write(VRPREPStreamReader reader, byte[] hash, String pathname, boolean withMatrix, Function<IDistanceMatrix, ? extends ISavings> savings){
+		if(hash.length!=32)
+			throw new IllegalArgumentException("argument hash must be a SHA-256 hash (passed "+hash.length+" bytes)");
+		double[] x=reader.getX();
+		double[] y=reader.getY();
+		double[] demands=reader.getDemandArray();
+		IDistanceMatrix distances=withMatrix || savings!=null?new ArrayDistanceMatrix(EuclideanCalculator.calc(x, y)):null;
+		ISavings store=savings!=null?savings.apply(distances):null;
+
+		Path target=Paths.get(pathname).toAbsolutePath();
+		Path temp=null;
+		try{
+			temp=Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+			try(FileChannel channel=FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+				ByteBuffer buffer=ByteBuffer.allocateDirect(1<<16).order(ByteOrder.LITTLE_ENDIAN);
+				buffer.position(HEADER);
+				for(String type : reader.getVehicleTypes()){
+					byte[] name=type.getBytes(StandardCharsets.UTF_8);
+					ensure(channel, buffer, 12+name.length);
+					buffer.putInt(name.length).put(name).putDouble(reader.getCapacity(type));
+				}
+				for(double v : x)
+					ensure(channel, buffer, 8).putDouble(v);
+				for(double v : y)
+					ensure(channel, buffer, 8).putDouble(v);
+				for(double v : demands)
+					ensure(channel, buffer, 8).putDouble(v);
+
+				long savingsOffset=0;
+				if(store!=null){
+					savingsOffset=align(channel, buffer);
+					ensure(channel, buffer, 8).putInt(store.size()).putInt(0);
+					for(int k=0;k<store.size();k++)
+						ensure(channel, buffer, 4).putInt(store.getSourceId(k));
+					for(int k=0;k<store.size();k++)
+						ensure(channel, buffer, 4).putInt(store.getTargetId(k));
+					for(int k=0;k<store.size();k++)
+						ensure(channel, buffer, 4).putFloat(store.getSaving(k));
+				}
+				long matrixOffset=0;
+				if(withMatrix){
+					matrixOffset=align(channel, buffer);
+					MappedDistanceMatrix.flush(channel, buffer);
+					MappedDistanceMatrix.write(distances, channel, false, true);
+				}else{
+					MappedDistanceMatrix.flush(channel, buffer);
+				}
+
+				buffer.order(ByteOrder.BIG_ENDIAN).putInt(MAGIC).order(ByteOrder.LITTLE_ENDIAN).putInt(VERSION).put(hash).putInt(x.length).putInt(demands.length).putInt(reader.getVehicleTypes().size()).putInt(0);
+				buffer.putLong(savingsOffset).putLong(matrixOffset).flip();
+				long position=0;
+				while(buffer.hasRemaining())
+					position+=channel.write(buffer, position);
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch(IOException e){
+			throw new IllegalStateException("The snapshot cannot be written", e);
+		}finally{
+			try{
+				if(temp!=null)
+					Files.deleteIfExists(temp);
+			}catch(IOException e){
+				//the temporary file is left behind
+			}
+		}
+	}
+
+	/**
+	 * Computes the hash identifying the content of an instance file
+	 * @param pathname the path to the file
+	 * @return the SHA-256 hash of the file
+	 */
+	public static byte[] hash(String pathname){
+		MessageDigest digest=sha256();
+		try(InputStream in=new DigestInputStream(Files.newInputStream(Paths.get(pathname)), digest)){
+			drain(in);
+		}catch(IOException e){
+			throw new IllegalStateException("The instance file cannot be hashed", e);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * @return a new SHA-256 digest
+	 */
+	private static MessageDigest sha256(){
+		try{
+			return MessageDigest.getInstance("SHA-256");
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * Reads a stream to its end
+	 */
+	private static void drain(InputStream in) throws IOException{
+		byte[] buffer=new byte[1<<16];
+		while(in.read(buffer)>=0);
+	}
+
+	/**
+	 * @return a copy of the hash of the XML file the snapshot was built from
+	 */
+	public byte[] getSourceHash(){
+		return hash.clone();
+	}
+
+	/**
+	 * @return true if the snapshot holds the distance matrix
+	 */
+	public boolean hasDistanceMatrix(){
+		return matrixOffset>0;
+	}
+
+	/**
+	 * @return true if the snapshot holds the sorted savings
+	 */
+	public boolean hasSavings(){
+		return savingsOffset>0;
+	}
+
+	/**
+	 * Returns the distance matrix: the matrix of the snapshot, mapped in memory, if it holds one, or a matrix computed
+	 * from the coordinates otherwise. In both cases the distances are identical to those of {@link VRPREPInstanceReader}.
+	 */
+	@Override
+	public IDistanceMatrix getDistanceMatrix(){
+		if(matrixOffset>0)
+			return new MappedDistanceMatrix(pathname, matrixOffset);
+		return new ArrayDistanceMatrix(EuclideanCalculator.calc(x, y));
+	}
+
+	/**
+	 * @return the number of savings held by the snapshot (0 if it holds none)
+	 */
+	public int getSavingsCount(){
+		return savingsCount;
+	}
+
+	/**
+	 * Reads the savings held by the snapshot, in the order in which they were written
+	 * @param sourceIds receives the id of first node of each saving
+	 * @param targetIds receives the id of second node of each saving
+	 * @param values receives the value of each saving
+	 */
+	public void readSavings(int[] sourceIds, int[] targetIds, float[] values){
+		int count=savingsCount;
+		if(sourceIds.length!=count || targetIds.length!=count || values.length!=count)
+			throw new IllegalArgumentException("arguments sourceIds, targetIds and values must have length "+count);
+		try(FileChannel channel=FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)){
+			long position=savingsOffset+8;
+			for(int from=0;from<count;from+=CHUNK){
+				int length=Math.min(CHUNK, count-from);
+				map(channel, position+4L*from, 4*length).asIntBuffer().get(sourceIds, from, length);
+				map(channel, position+4L*count+4L*from, 4*length).asIntBuffer().get(targetIds, from, length);
+				map(channel, position+8L*count+4L*from, 4*length).asFloatBuffer().get(values, from, length);
+			}
+		}catch(IOException e){
+			throw new IllegalStateException("The snapshot cannot be read", e);
+		}
+	}
+
+	@Override
+	public double[][] getCoordinates(){
+		double[][] coordinates=new double[x.length][2];
+		for(int i=0;i<x.length;i++){
+			coordinates[i][0]=x[i];
+			coordinates[i][1]=y[i];
+		}
+		return coordinates;
+	}
+
+	@Override
+	public IDemands getDemands(){
+		return new ArrayDemands(demands);
+	}
+
+	@Override
+	public double getCapacity(String type){
+		Double Q=capacities.get(type);
+		return Q==null?Double.NaN:Q;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Reads a region of a file in a heap buffer
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException{
+		if(position+length>channel.size())
+			throw new IllegalArgumentException("The snapshot is truncated");
+		ByteBuffer buffer=ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining())
+			channel.read(buffer, position+buffer.position());
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Maps a region of a file
+	 */
+	private static MappedByteBuffer map(FileChannel channel, long position, int length) throws IOException{
+		if(position+length>channel.size())
+			throw new IllegalArgumentException("The snapshot is truncated");
+		MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * Flushes a buffer if it has less than <code>bytes</code> bytes left
+	 * @return the buffer
+	 */
+	private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException{
+		if(buffer.remaining()<bytes)
+			MappedDistanceMatrix.flush(channel, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Pads the output to the next 8-byte boundary
+	 * @return the position in the file of the boundary
+	 */
+	private static long align(FileChannel channel, ByteBuffer buffer) throws IOException{
+		long position=channel.position()+buffer.position();
+		while(position%8!=0){
+			ensure(channel, buffer, 1).put((byte)0);
+			position++;
+		}
+		return position;
+	}
+
+}
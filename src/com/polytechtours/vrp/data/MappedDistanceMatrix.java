@@ -0,0 +1,238 @@
+package com.polytechtours.vrp.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implements a read-only distance matrix backed by a memory-mapped file. The distances live in the page cache rather than
+ * in the heap: opening a matrix only maps the file (whatever its size, nothing is read until a distance is requested),
+ * matrices larger than the heap can be used, and several processes mapping the same file share the same physical pages.
+ * Use {@link #write(IDistanceMatrix, String, boolean, boolean)} to dump any other matrix in this format.</br>
+ * The file is laid out as follows, all values but the magic number being little-endian:
+ * <table>
+ * <tr><td>offset 0</td><td>int</td><td>magic number {@link #MAGIC}, big-endian so that the file starts with the ASCII characters <code>VRPD</code></td></tr>
+ * <tr><td>offset 4</td><td>int</td><td>format version ({@link #VERSION})</td></tr>
+ * <tr><td>offset 8</td><td>int</td><td>dimension n (the number of nodes, depot included)</td></tr>
+ * <tr><td>offset 12</td><td>int</td><td>flags: {@link #SINGLE_PRECISION} if the distances are <code>float</code> rather
+ * than <code>double</code>, {@link #SYMMETRIC} if only the upper triangle is stored</td></tr>
+ * <tr><td>offset 16</td><td></td><td>the distances, row by row: the n<sup>2</sup> distances of the full matrix or, if the
+ * matrix is symmetric, the n(n-1)/2 distances between <code>i</code> and <code>j&gt;i</code> (same layout as
+ * {@link TriangularDistanceMatrix})</td></tr>
+ * </table>
+ * The implementation assumes that nodes are numbered from 0 to n-1. In a symmetric file the distance from a node to
+ * itself is 0. The matrix supports concurrent reads.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 30, 2018
+ *
+ */
+public class MappedDistanceMatrix implements IDistanceMatrix {
+	/**
+	 * The magic number starting every matrix file
+	 */
+	public static final int MAGIC = 0x56525044;
+	/**
+	 * The version of the format
+	 */
+	public static final int VERSION = 2;
+	/**
+	 * Flag set if the distances are stored in single precision
+	 */
+	public static final int SINGLE_PRECISION = 1;
+	/**
+	 * Flag set if only the upper triangle of the matrix is stored
+	 */
+	public static final int SYMMETRIC = 2;
+	/**
+	 * The size of the header in bytes
+	 */
+	private static final int HEADER = 16;
+	/**
+	 * The size of a mapped segment in bytes. A buffer cannot map more than 2GB, larger files are mapped in several segments.
+	 * Since the header and the segments are multiples of the size of a distance, a distance never spans two segments.
+	 */
+	private static final int SEGMENT_SHIFT = 30;
+
+	/**
+	 * The number of nodes
+	 */
+	private final int n;
+	/**
+	 * True if the distances are stored in single precision
+	 */
+	private final boolean singlePrecision;
+	/**
+	 * True if only the upper triangle is stored
+	 */
+	private final boolean symmetric;
+	/**
+	 * The mapped segments of the file
+	 */
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Maps a matrix file
+	 * @param pathname the path to the file
+	 */
+	public MappedDistanceMatrix(String pathname){
+		this(pathname, 0);
+	}
+
+	/**
+	 * Maps a matrix stored in a larger file (e.g., an {@link InstanceSnapshot})
+	 * @param pathname the path to the file
+	 * @param offset the position of the matrix (i.e., of its header) in the file
+	 */
+	public MappedDistanceMatrix(String pathname, long offset){
+		try(FileChannel channel=FileChannel.open(Paths.get(pathname), StandardOpenOption.READ)){
+			long length=channel.size()-offset;
+			if(length<HEADER)
+				throw new IllegalArgumentException("The matrix file is too short ("+length+" bytes)");
+			ByteBuffer header=ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining())
+				channel.read(header, offset+header.position());
+			header.flip();
+			if(header.order(ByteOrder.BIG_ENDIAN).getInt()!=MAGIC)
+				throw new IllegalArgumentException("The file is not a matrix file");
+			int version=header.order(ByteOrder.LITTLE_ENDIAN).getInt();
+			if(version!=VERSION)
+				throw new IllegalArgumentException("Unsupported matrix file version "+version);
+			this.n=header.getInt();
+			int flags=header.getInt();
+			this.singlePrecision=(flags&SINGLE_PRECISION)!=0;
+			this.symmetric=(flags&SYMMETRIC)!=0;
+			long expected=dataOffset(count(n, symmetric), singlePrecision);
+			if(length<expected)
+				throw new IllegalArgumentException("The matrix file is truncated ("+length+" bytes, expected "+expected+")");
+			int count=(int)((expected+(1L<<SEGMENT_SHIFT)-1)>>>SEGMENT_SHIFT);
+			this.segments=new MappedByteBuffer[count];
+			for(int s=0;s<count;s++){
+				long start=(long)s<<SEGMENT_SHIFT;
+				long size=Math.min(1L<<SEGMENT_SHIFT, expected-start);
+				segments[s]=channel.map(FileChannel.MapMode.READ_ONLY, offset+start, size);
+				segments[s].order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}catch(IOException e){
+			throw new IllegalStateException("The matrix file cannot be read", e);
+		}
+	}
+
+	@Override
+	public double getDistance(int i, int j) {
+		long k;
+		if(symmetric){
+			if(i==j)
+				return 0;
+			k=i<j?index(i,j):index(j,i);
+		}else{
+			k=(long)i*n+j;
+		}
+		long position=dataOffset(k, singlePrecision);
+		MappedByteBuffer segment=segments[(int)(position>>>SEGMENT_SHIFT)];
+		int offset=(int)(position&((1L<<SEGMENT_SHIFT)-1));
+		return singlePrecision?segment.getFloat(offset):segment.getDouble(offset);
+	}
+
+	/**
+	 * Not supported: the matrix is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setDistance(int i, int j, double distance) {
+		throw new UnsupportedOperationException("the distances of a mapped matrix cannot be set");
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * @return true if distances are stored in single precision
+	 */
+	public boolean isSinglePrecision(){
+		return singlePrecision;
+	}
+
+	/**
+	 * @return true if only the upper triangle of the matrix is stored
+	 */
+	public boolean isSymmetric(){
+		return symmetric;
+	}
+
+	/**
+	 * @return the position of the distance between nodes <code>i</code> and <code>j</code> (with <code>i&lt;j</code>) in the upper triangle
+	 */
+	private long index(int i, int j){
+		return (long)i*(2L*n-i-1)/2+j-i-1;
+	}
+
+	/**
+	 * @return the number of distances stored for a matrix of dimension <code>n</code>
+	 */
+	private static long count(int n, boolean symmetric){
+		return symmetric?(long)n*(n-1)/2:(long)n*n;
+	}
+
+	/**
+	 * @return the position in the file of the distance in position <code>k</code>
+	 */
+	private static long dataOffset(long k, boolean singlePrecision){
+		return HEADER+(singlePrecision?4*k:8*k);
+	}
+
+	/**
+	 * Writes a distance matrix to a file in the format read by this class. The file is written sequentially through a
+	 * fixed-size buffer, so matrices of any size (e.g., other mapped or coordinate-backed matrices) can be dumped.
+	 * @param distances the distance matrix
+	 * @param pathname the path to the file, replaced if it exists
+	 * @param singlePrecision true to store the distances as <code>float</code>
+	 * @param symmetric true to store only the distances between <code>i</code> and <code>j&gt;i</code>. The caller is
+	 * responsible for checking that the matrix is symmetric.
+	 */
+	public static void write(IDistanceMatrix distances, String pathname, boolean singlePrecision, boolean symmetric){
+		try(FileChannel channel=FileChannel.open(Paths.get(pathname), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+			write(distances, channel, singlePrecision, symmetric);
+		}catch(IOException e){
+			throw new IllegalStateException("The matrix file cannot be written", e);
+		}
+	}
+
+	/**
+	 * Writes a distance matrix at the current position of a channel
+	 * @see #write(IDistanceMatrix, String, boolean, boolean)
+	 */
+	static void write(IDistanceMatrix distances, FileChannel channel, boolean singlePrecision, boolean symmetric) throws IOException{
+		int n=distances.size();
+		ByteBuffer buffer=ByteBuffer.allocateDirect(1<<16).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.order(ByteOrder.BIG_ENDIAN).putInt(MAGIC).order(ByteOrder.LITTLE_ENDIAN).putInt(VERSION).putInt(n).putInt((singlePrecision?SINGLE_PRECISION:0)|(symmetric?SYMMETRIC:0));
+		for(int i=0;i<n;i++){
+			for(int j=symmetric?i+1:0;j<n;j++){
+				if(buffer.remaining()<8)
+					flush(channel, buffer);
+				if(singlePrecision)
+					buffer.putFloat((float)distances.getDistance(i, j));
+				else
+					buffer.putDouble(distances.getDistance(i, j));
+			}
+		}
+		flush(channel, buffer);
+	}
+
+	/**
+	 * Writes the content of a buffer to a channel and clears the buffer
+	 */
+	static void flush(FileChannel channel, ByteBuffer buffer) throws IOException{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
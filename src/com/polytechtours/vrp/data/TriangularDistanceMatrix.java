@@ -0,0 +1,118 @@
+package com.polytechtours.vrp.data;
+
+/**
+ * Implements a symmetric distance matrix storing only its upper triangle, row by row, in one flat primitive array.
+ * Distances can be kept in double or in single precision. Compared to {@link ArrayDistanceMatrix} the matrix takes half
+ * the memory in double precision and a quarter in single precision, has no per-row header or indirection, and row
+ * <code>i</code> (columns <code>j&gt;i</code>) is contiguous in memory.</br>
+ * The implementation assumes that nodes are numbered from 0 to n-1 and that the distance from a node to itself is 0.
+ * Setting the distance between <code>i</code> and <code>j</code> also sets the distance between <code>j</code> and <code>i</code>.
+ * The number of distances, n(n-1)/2, must fit in an array (n up to 65536).
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 28, 2018
+ *
+ */
+public class TriangularDistanceMatrix implements IDistanceMatrix {
+	/**
+	 * The number of nodes
+	 */
+	private final int n;
+	/**
+	 * Holds the upper triangle in double precision, <code>null</code> in single precision
+	 */
+	private final double[] distances;
+	/**
+	 * Holds the upper triangle in single precision, <code>null</code> in double precision
+	 */
+	private final float[] floatDistances;
+
+	/**
+	 * Constructs a new distance matrix in double precision
+	 * @param n the number of nodes (including the depot)
+	 */
+	public TriangularDistanceMatrix(int n){
+		this(n, false);
+	}
+
+	/**
+	 * Constructs a new distance matrix
+	 * @param n the number of nodes (including the depot)
+	 * @param singlePrecision true to store the distances as <code>float</code>
+	 */
+	public TriangularDistanceMatrix(int n, boolean singlePrecision){
+		long length=(long)n*(n-1)/2;
+		if(length>Integer.MAX_VALUE-8)
+			throw new IllegalArgumentException("argument n is too large for a packed matrix (passed "+n+")");
+		this.n=n;
+		this.distances=singlePrecision?null:new double[(int)length];
+		this.floatDistances=singlePrecision?new float[(int)length]:null;
+	}
+
+	/**
+	 * Constructs a new matrix of the Euclidean distances between the nodes at <code>coordinates</code>. Each distance
+	 * is computed once and the array is written sequentially, row by row; the distances are exactly those of
+	 * {@link com.polytechtours.vrp.util.EuclideanCalculator}.
+	 * @param coordinates the coordinates, one row per node with the x and y coordinates
+	 * @param singlePrecision true to store the distances as <code>float</code>
+	 */
+	public TriangularDistanceMatrix(double[][] coordinates, boolean singlePrecision){
+		this(coordinates.length, singlePrecision);
+		int k=0;
+		for(int i=0; i<n; i++){
+			double xi=coordinates[i][0];
+			double yi=coordinates[i][1];
+			for(int j=i+1; j<n; j++, k++){
+				double dx=xi-coordinates[j][0];
+				double dy=yi-coordinates[j][1];
+				double d=Math.sqrt(dx*dx+dy*dy);
+				if(distances!=null)
+					distances[k]=d;
+				else
+					floatDistances[k]=(float)d;
+			}
+		}
+	}
+
+	/**
+	 * @return the position of the distance between nodes <code>i</code> and <code>j</code> (with <code>i&lt;j</code>) in the array
+	 */
+	private int index(int i, int j){
+		return (int)((long)i*(2*n-i-1)/2)+j-i-1;
+	}
+
+	@Override
+	public double getDistance(int i, int j) {
+		if(i==j)
+			return 0;
+		int k=i<j?index(i,j):index(j,i);
+		return distances!=null?distances[k]:floatDistances[k];
+	}
+
+	@Override
+	public void setDistance(int i, int j, double distance) {
+		if(i==j){
+			if(distance!=0)
+				throw new IllegalArgumentException("the distance from a node to itself must be 0 (passed "+distance+")");
+			return;
+		}
+		int k=i<j?index(i,j):index(j,i);
+		if(distances!=null)
+			distances[k]=distance;
+		else
+			floatDistances[k]=(float)distance;
+	}
+
+	/**
+	 * @return true if distances are stored in single precision
+	 */
+	public boolean isSinglePrecision(){
+		return distances==null;
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+}
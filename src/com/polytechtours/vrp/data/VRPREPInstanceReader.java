@@ -14,7 +14,7 @@ import com.polytechtours.vrp.util.EuclideanCalculator;
  * @since Jan 22, 2016
  *
  */
-public class VRPREPInstanceReader implements AutoCloseable{
+public class VRPREPInstanceReader implements IInstanceReader{
 	
 	/**
 	 * The in-memory version of the XML file
@@ -33,7 +33,17 @@ public class VRPREPInstanceReader implements AutoCloseable{
 	 * Parses the XML instance file and retrieves the distance matrix
 	 * @return the distance matrix
 	 */
+	@Override
 	public IDistanceMatrix getDistanceMatrix(){
+		ArrayDistanceMatrix distances=new ArrayDistanceMatrix(EuclideanCalculator.calc(getCoordinates()));
+		return distances;
+	}
+	/**
+	 * Parses the XML instance file and retrieves the node coordinates
+	 * @return the coordinates, one row per node (indexed by node ID) with the x and y coordinates
+	 */
+	@Override
+	public double[][] getCoordinates(){
 
 		//Read the coordinates
 		Element nodes=xml.getRootElement().getChild("network").getChild("nodes");
@@ -49,13 +59,13 @@ public class VRPREPInstanceReader implements AutoCloseable{
 			coordinates[id][0]=Double.valueOf(cx.getValue());
 			coordinates[id][1]=Double.valueOf(cy.getValue());
 		}
-		ArrayDistanceMatrix distances=new ArrayDistanceMatrix(EuclideanCalculator.calc(coordinates));
-		return distances;
+		return coordinates;
 	}
 	/**
 	 * Parses the XML instance file and retrieves the customer demands
 	 * @return the demands
 	 */
+	@Override
 	public IDemands getDemands(){
 
 		//Read the requests
@@ -77,6 +87,7 @@ public class VRPREPInstanceReader implements AutoCloseable{
 	 * @arg type the type of vehicle
 	 * @return
 	 */
+	@Override
 	public double getCapacity(String type){
 		//Read the requests
 		Element fleet=xml.getRootElement().getChild("fleet");
@@ -0,0 +1,266 @@
+package com.polytechtours.vrp.data;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Reads VRP instances compiling with the VRP-REP instance specification in a single streaming pass (StAX), without
+ * building a document in memory. Nodes, requests and vehicle profiles are read in one pass, straight into primitive
+ * arrays, so memory stays proportional to the number of nodes and large files are parsed several times faster than
+ * with {@link VRPREPInstanceReader}. Both readers return the same coordinates, demands, capacities and distances.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 1, 2018
+ *
+ */
+public class VRPREPStreamReader implements IInstanceReader {
+
+	/**
+	 * The coordinates of the nodes on the x axis, indexed by node ID
+	 */
+	private double[] x=new double[64];
+	/**
+	 * The coordinates of the nodes on the y axis, indexed by node ID
+	 */
+	private double[] y=new double[64];
+	/**
+	 * The number of nodes
+	 */
+	private int nodes=0;
+	/**
+	 * The demands, indexed by node ID
+	 */
+	private double[] demands;
+	/**
+	 * The node of each request, in the order of the file
+	 */
+	private int[] requestNodes=new int[64];
+	/**
+	 * The quantity of each request, in the order of the file
+	 */
+	private double[] quantities=new double[64];
+	/**
+	 * The number of requests
+	 */
+	private int requests=0;
+	/**
+	 * The capacity of each type of vehicle
+	 */
+	private final Map<String, Double> capacities=new LinkedHashMap<>();
+
+	/**
+	 * Constructs a new VRPREPStreamReader, reading the whole file
+	 * @param pathname
+	 */
+	public VRPREPStreamReader(String pathname){
+		try(InputStream in=new BufferedInputStream(new FileInputStream(pathname), 1<<16)){
+			read(in);
+		}catch(IOException e){
+			throw new IllegalStateException("The instance file cannot be read", e);
+		}
+		build();
+	}
+
+	/**
+	 * Constructs a new VRPREPStreamReader, reading a document from a stream. The stream is not closed, and it may not
+	 * be read to its end.
+	 * @param in the stream
+	 */
+	public VRPREPStreamReader(InputStream in){
+		//some parsers close their input at the end of the document
+		read(new FilterInputStream(in){
+			@Override
+			public void close(){
+			}
+		});
+		build();
+	}
+
+	/**
+	 * Parses the document held by a stream
+	 */
+	private void read(InputStream in){
+		try{
+			XMLInputFactory factory=XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			XMLStreamReader xml=factory.createXMLStreamReader(in);
+			try{
+				read(xml);
+			}finally{
+				xml.close();
+			}
+		}catch(XMLStreamException | RuntimeException e){
+			throw new IllegalStateException("The instance file cannot be read", e);
+		}
+	}
+
+	/**
+	 * Trims the coordinates and builds the demand array once the document is read
+	 */
+	private void build(){
+		this.x=Arrays.copyOf(x, nodes);
+		this.y=Arrays.copyOf(y, nodes);
+		this.demands=new double[requests+1];
+		for(int r=0;r<requests;r++){
+			if(requestNodes[r]<0 || requestNodes[r]>requests)
+				throw new IllegalArgumentException("The request for node "+requestNodes[r]+" is out of range: the instance has "+requests+" requests");
+			demands[requestNodes[r]]=quantities[r];
+		}
+		this.requestNodes=null;
+		this.quantities=null;
+	}
+
+	/**
+	 * Reads the document. Only the elements of the <code>nodes</code>, <code>requests</code> and <code>fleet</code>
+	 * sections are interpreted, with the same semantics as {@link VRPREPInstanceReader}: the depot (node of type 0) gets
+	 * ID 0, and the demand of a request is stored in the position of its node, which must not exceed the number of
+	 * requests.
+	 */
+	private void read(XMLStreamReader xml) throws XMLStreamException{
+		String section=null;
+		int id=-1;
+		String type=null;
+		while(xml.hasNext()){
+			int event=xml.next();
+			if(event==XMLStreamConstants.END_ELEMENT){
+				String name=xml.getLocalName();
+				if(name.equals(section))
+					section=null;
+				continue;
+			}
+			if(event!=XMLStreamConstants.START_ELEMENT)
+				continue;
+			String name=xml.getLocalName();
+			if(section==null){
+				if(name.equals("nodes") || name.equals("requests") || name.equals("fleet"))
+					section=name;
+				continue;
+			}
+			switch(section){
+			case "nodes":
+				if(name.equals("node")){
+					id=Integer.parseInt(xml.getAttributeValue(null, "type"))==0?0:Integer.parseInt(xml.getAttributeValue(null, "id"));
+					nodes++;
+					ensureNodes(Math.max(id+1, nodes));
+				}else if(name.equals("cx")){
+					x[id]=Double.parseDouble(xml.getElementText());
+				}else if(name.equals("cy")){
+					y[id]=Double.parseDouble(xml.getElementText());
+				}
+				break;
+			case "requests":
+				if(name.equals("request")){
+					ensureRequests(requests+1);
+					requestNodes[requests++]=Integer.parseInt(xml.getAttributeValue(null, "node"));
+				}else if(name.equals("quantity")){
+					quantities[requests-1]=Double.parseDouble(xml.getElementText());
+				}
+				break;
+			default:
+				if(name.equals("vehicle_profile")){
+					type=xml.getAttributeValue(null, "type");
+				}else if(name.equals("capacity") && type!=null){
+					capacities.putIfAbsent(type, Double.parseDouble(xml.getElementText()));
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Grows the coordinate arrays to hold at least <code>length</code> nodes
+	 */
+	private void ensureNodes(int length){
+		if(length>x.length){
+			int capacity=Math.max(length, 2*x.length);
+			x=Arrays.copyOf(x, capacity);
+			y=Arrays.copyOf(y, capacity);
+		}
+	}
+
+	/**
+	 * Grows the request arrays to hold at least <code>length</code> requests
+	 */
+	private void ensureRequests(int length){
+		if(length>requestNodes.length){
+			requestNodes=Arrays.copyOf(requestNodes, Math.max(length, 2*requestNodes.length));
+			quantities=Arrays.copyOf(quantities, requestNodes.length);
+		}
+	}
+
+	@Override
+	public IDistanceMatrix getDistanceMatrix(){
+		return new ArrayDistanceMatrix(EuclideanCalculator.calc(x, y));
+	}
+
+	@Override
+	public double[][] getCoordinates(){
+		double[][] coordinates=new double[x.length][2];
+		for(int i=0;i<x.length;i++){
+			coordinates[i][0]=x[i];
+			coordinates[i][1]=y[i];
+		}
+		return coordinates;
+	}
+
+	/**
+	 * @return a copy of the coordinates of the nodes on the x axis, indexed by node ID
+	 */
+	public double[] getX(){
+		return x.clone();
+	}
+
+	/**
+	 * @return a copy of the coordinates of the nodes on the y axis, indexed by node ID
+	 */
+	public double[] getY(){
+		return y.clone();
+	}
+
+	@Override
+	public IDemands getDemands(){
+		return new ArrayDemands(demands);
+	}
+
+	/**
+	 * @return a copy of the demands, indexed by node ID
+	 */
+	public double[] getDemandArray(){
+		return demands.clone();
+	}
+
+	@Override
+	public double getCapacity(String type){
+		Double Q=capacities.get(type);
+		return Q==null?Double.NaN:Q;
+	}
+
+	/**
+	 * @return the types of vehicle declared in the fleet
+	 */
+	public Set<String> getVehicleTypes(){
+		return Collections.unmodifiableSet(capacities.keySet());
+	}
+
+	@Override
+	public void close() {
+		//nothing to release, the file is closed once read
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.polytechtours.vrp.test;
+
+import java.lang.management.ManagementFactory;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.ISolverListener;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * Allocation regression test for the merge loop of {@link ClarkeWright}. Measures, with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, the bytes allocated by {@link ClarkeWright#run()}
+ * (savings generation excluded) on a synthetic instance, and fails if one of three budgets is exceeded:
+ * <ul>
+ * <li>bytes per processed saving;</li>
+ * <li>bytes per merge: there are about as many merges as customers but many more savings, so a regression of a few
+ * bytes per merge is lost in the bytes per saving;</li>
+ * <li>bytes allocated in the steady state, i.e., while processing the savings whose two customers are already in
+ * routes. The only allocations left in the loop are the D->i->D routes created once per customer, so the steady state
+ * must not allocate at all.</li>
+ * </ul>
+ * The steady state is measured by a listener reading the allocation counter of the thread at each saving; the
+ * counter does not allocate, so the listener does not disturb the measure.</br>
+ * Usage: <code>AllocationTest [synthetic size] [budget in bytes per saving] [budget in bytes per merge] [steady state budget in bytes]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 27, 2018
+ *
+ */
+public class AllocationTest {
+
+	public static void main(String[] args){
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		double budget = args.length > 1 ? Double.parseDouble(args[1]) : 0.3;
+		double mergeBudget = args.length > 2 ? Double.parseDouble(args[2]) : 200;
+		long steadyBudget = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+		com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if(!mx.isThreadAllocatedMemorySupported())
+			throw new IllegalStateException("the JVM does not support measuring thread allocations");
+		mx.setThreadAllocatedMemoryEnabled(true);
+
+		IDistanceMatrix distances = CWBenchmark.syntheticDistances(n, 42);
+		IDemands demands = CWBenchmark.syntheticDemands(n, 42);
+
+		//warm up so that the measured run executes compiled code
+		for(int k=0; k<3; k++)
+			new ClarkeWright(distances, demands, 200).run();
+
+		ClarkeWright cw = new ClarkeWright(distances, demands, 200);
+		long thread = Thread.currentThread().getId();
+		long before = mx.getThreadAllocatedBytes(thread);
+		VRPSolution solution = (VRPSolution) cw.run();
+		long allocated = mx.getThreadAllocatedBytes(thread) - before;
+		int merges = (distances.size() - 1) - solution.size();
+
+		double perSaving = (double) allocated / cw.getConsumed();
+		double perMerge = (double) allocated / merges;
+		System.out.println("n=" + (n + 1) + "\tsavings processed=" + cw.getConsumed() + "\tmerges=" + merges + "\tallocated=" + allocated
+				+ " bytes\tper saving=" + perSaving + " bytes\tper merge=" + perMerge + " bytes");
+
+		//same run, with the listener measuring the steady state
+		for(int k=0; k<3; k++)
+			steadyState(mx, distances, demands);
+		SteadyState steady = steadyState(mx, distances, demands);
+		System.out.println("steady state\tsavings=" + steady.savings + "\tmerges=" + steady.merges + "\tallocated=" + steady.bytes + " bytes");
+
+		if(perSaving > budget)
+			throw new AssertionError("the merge loop allocates " + perSaving + " bytes per saving (budget " + budget + ")");
+		if(perMerge > mergeBudget)
+			throw new AssertionError("the merge loop allocates " + perMerge + " bytes per merge (budget " + mergeBudget + ")");
+		if(steady.bytes > steadyBudget)
+			throw new AssertionError("the steady state of the merge loop allocates " + steady.bytes + " bytes over " + steady.savings
+					+ " savings and " + steady.merges + " merges (budget " + steadyBudget + ")");
+		System.out.println("OK");
+	}
+
+	/**
+	 * Runs {@link ClarkeWright} with a {@link SteadyState} listener
+	 * @return the listener
+	 */
+	private static SteadyState steadyState(com.sun.management.ThreadMXBean mx, IDistanceMatrix distances, IDemands demands){
+		ClarkeWright cw = new ClarkeWright(distances, demands, 200);
+		SteadyState steady = new SteadyState(mx, cw.getSolution());
+		cw.setListener(steady);
+		cw.run();
+		return steady;
+	}
+
+	/**
+	 * Sums the bytes allocated from the examination of a saving to the examination of the next one, over the savings
+	 * whose two customers are already in routes (so that no route is created). The last saving is not counted: the run
+	 * then creates the routes of the customers not reached by the savings.
+	 */
+	private static final class SteadyState implements ISolverListener {
+		private final com.sun.management.ThreadMXBean mx;
+		private final long thread = Thread.currentThread().getId();
+		private final VRPSolution solution;
+		/**
+		 * true if the saving under examination is in the steady state
+		 */
+		private boolean counting;
+		/**
+		 * the allocation counter of the thread when the saving under examination was examined
+		 */
+		private long mark;
+		private long bytes;
+		private int savings;
+		private int merges;
+
+		private SteadyState(com.sun.management.ThreadMXBean mx, VRPSolution solution){
+			this.mx = mx;
+			this.solution = solution;
+		}
+
+		@Override
+		public void savingExamined(int sourceId, int targetId){
+			long now = mx.getThreadAllocatedBytes(thread);
+			if(counting)
+				bytes += now - mark;
+			counting = solution.containsNode(sourceId) && solution.containsNode(targetId);
+			if(counting)
+				savings++;
+			mark = mx.getThreadAllocatedBytes(thread);
+		}
+
+		@Override
+		public void mergeAccepted(int sourceId, int targetId, int direction, int routes){
+			if(counting)
+				merges++;
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.polytechtours.vrp.test;
+
+import java.util.Random;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.ArrayDemands;
+import com.polytechtours.vrp.data.ArrayDistanceMatrix;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPInstanceReader;
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Times the merge loop of {@link ClarkeWright} (i.e., {@link ClarkeWright#run()}, savings generation excluded) on
+ * CMT05, CMT10 and on a synthetic instance with uniformly distributed customers.</br>
+ * Usage: <code>CWBenchmark [synthetic size] [repetitions]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 20, 2018
+ *
+ */
+public class CWBenchmark {
+
+	public static void main(String[] args){
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		benchmark("CMT05", "data/CMT/CMT05.xml", repetitions);
+		benchmark("CMT10", "data/CMT/CMT10.xml", repetitions);
+
+		//synthetic instances are expensive, a single run is enough
+		IDistanceMatrix distances = syntheticDistances(n, 42);
+		IDemands demands = syntheticDemands(n, 42);
+		benchmark("U" + n, distances, demands, 200, 1);
+	}
+
+	/**
+	 * Times the merge loop on a VRP-REP instance
+	 * @param name the name of the instance
+	 * @param path the path to the instance file
+	 * @param repetitions the number of timed runs
+	 */
+	public static void benchmark(String name, String path, int repetitions){
+		@SuppressWarnings("resource")
+		VRPREPInstanceReader reader = new VRPREPInstanceReader(path);
+		benchmark(name, reader.getDistanceMatrix(), reader.getDemands(), reader.getCapacity("0"), repetitions);
+	}
+
+	/**
+	 * Times the merge loop on an instance. The best run is reported.
+	 * @param name the name of the instance
+	 * @param distances the distance matrix
+	 * @param demands the demands
+	 * @param Q the vehicle capacity
+	 * @param repetitions the number of timed runs
+	 */
+	public static void benchmark(String name, IDistanceMatrix distances, IDemands demands, double Q, int repetitions){
+		long best = Long.MAX_VALUE;
+		VRPSolution solution = null;
+		for(int k=0; k<repetitions; k++){
+			ClarkeWright cw = new ClarkeWright(distances, demands, Q);
+			long start = System.nanoTime();
+			solution = (VRPSolution) cw.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.println(name + "\tn=" + distances.size() + "\tOF=" + solution.getOF() + "\troutes=" + solution.size() + "\tmerge loop=" + (best / 1000000.0) + " ms");
+	}
+
+	/**
+	 * Builds the distance matrix of a synthetic instance with customers uniformly distributed on a 1000x1000 square
+	 * and the depot at its center
+	 * @param n the number of customers
+	 * @param seed the seed of the random generator
+	 * @return the distance matrix (depot included)
+	 */
+	public static IDistanceMatrix syntheticDistances(int n, long seed){
+		return new ArrayDistanceMatrix(EuclideanCalculator.calc(syntheticCoordinates(n, seed)));
+	}
+
+	/**
+	 * Builds the coordinates of a synthetic instance with customers uniformly distributed on a 1000x1000 square
+	 * and the depot at its center
+	 * @param n the number of customers
+	 * @param seed the seed of the random generator
+	 * @return the coordinates (depot included)
+	 */
+	public static double[][] syntheticCoordinates(int n, long seed){
+		Random rnd = new Random(seed);
+		double[][] coordinates = new double[n+1][2];
+		coordinates[0][0] = 500;
+		coordinates[0][1] = 500;
+		for(int i=1; i<=n; i++){
+			coordinates[i][0] = rnd.nextDouble() * 1000;
+			coordinates[i][1] = rnd.nextDouble() * 1000;
+		}
+		return coordinates;
+	}
+
+	/**
+	 * Builds the demands of a synthetic instance, uniformly drawn in [1, 30]
+	 * @param n the number of customers
+	 * @param seed the seed of the random generator
+	 * @return the demands (depot included)
+	 */
+	public static IDemands syntheticDemands(int n, long seed){
+		Random rnd = new Random(seed);
+		double[] demands = new double[n+1];
+		for(int i=1; i<=n; i++)
+			demands[i] = 1 + rnd.nextInt(30);
+		return new ArrayDemands(demands);
+	}
+
+}
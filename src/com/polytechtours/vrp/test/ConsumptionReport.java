@@ -0,0 +1,47 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.LazySavings;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPInstanceReader;
+
+/**
+ * Reports, for every instance of a directory, how much of the savings list {@link ClarkeWright} consumes before no
+ * further merge is possible, and how much of it a {@link LazySavings} source had to sort.</br>
+ * Usage: <code>ConsumptionReport [directory]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 22, 2018
+ *
+ */
+public class ConsumptionReport {
+
+	public static void main(String[] args){
+		File directory = new File(args.length > 0 ? args[0] : "data/CMT");
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+		System.out.println("instance\tsavings\tconsumed\tsorted\tOF");
+		for(File file : files){
+			@SuppressWarnings("resource")
+			VRPREPInstanceReader reader = new VRPREPInstanceReader(file.getPath());
+			IDistanceMatrix distances = reader.getDistanceMatrix();
+			IDemands demands = reader.getDemands();
+			LazySavings savings = new LazySavings(distances);
+			ClarkeWright cw = new ClarkeWright(distances, demands, reader.getCapacity("0"), savings);
+			VRPSolution solution = (VRPSolution) cw.run();
+			System.out.println(file.getName() + "\t" + savings.size() + "\t" + cw.getConsumed() + " (" + percent(cw.getConsumed(), savings.size()) + ")\t"
+					+ savings.getSorted() + " (" + percent(savings.getSorted(), savings.size()) + ")\t" + solution.getOF());
+		}
+	}
+
+	private static String percent(int part, int total){
+		return String.format("%.1f%%", 100.0 * part / total);
+	}
+
+}
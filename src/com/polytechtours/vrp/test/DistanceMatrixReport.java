@@ -0,0 +1,117 @@
+package com.polytechtours.vrp.test;
+
+import java.util.Random;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.ArrayDistanceMatrix;
+import com.polytechtours.vrp.data.CoordinateDistanceMatrix;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.TriangularDistanceMatrix;
+import com.polytechtours.vrp.util.EuclideanCalculator;
+import com.polytechtours.vrp.util.NearestNeighbors;
+
+/**
+ * Compares the distance matrix implementations on synthetic instances with uniformly distributed customers: heap used
+ * by the matrix, time to build it, time of random reads and time of {@link ClarkeWright} (savings generation included).
+ * The full savings list is used up to {@link #FULL_SAVINGS_LIMIT} nodes and the granular list with 20 neighbours beyond.
+ * Matrices that would not fit in the heap are reported as such.</br>
+ * Usage: <code>DistanceMatrixReport [n1,n2,...]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 29, 2018
+ *
+ */
+public class DistanceMatrixReport {
+
+	/**
+	 * the largest instance solved with the full savings list
+	 */
+	private static final int FULL_SAVINGS_LIMIT = 10000;
+	/**
+	 * the number of random reads timed
+	 */
+	private static final int READS = 10000000;
+	/**
+	 * keeps the random reads from being optimised away
+	 */
+	static volatile double sink;
+
+	public static void main(String[] args){
+		String[] sizes = (args.length > 0 ? args[0] : "1000,10000,50000").split(",");
+		System.out.println("n\tmatrix\theap (MB)\tbuild (ms)\trandom reads (ns/read)\tCW (ms)\tOF");
+		for(String size : sizes){
+			int n = Integer.parseInt(size);
+			double[][] coordinates = CWBenchmark.syntheticCoordinates(n, 42);
+			IDemands demands = CWBenchmark.syntheticDemands(n, 42);
+			report(n, "array", coordinates, demands, 8L * (n + 1) * (n + 1) + 16L * (n + 1));
+			report(n, "packed", coordinates, demands, 8L * (n + 1) * n / 2);
+			report(n, "packed float", coordinates, demands, 4L * (n + 1) * n / 2);
+			report(n, "coordinates", coordinates, demands, 16L * (n + 1));
+		}
+	}
+
+	/**
+	 * Measures and prints one implementation on one instance
+	 * @param n the number of customers
+	 * @param type the implementation
+	 * @param coordinates the coordinates (depot included)
+	 * @param demands the demands (depot included)
+	 * @param footprint the expected size of the matrix in bytes, used to skip matrices that do not fit in the heap
+	 */
+	private static void report(int n, String type, double[][] coordinates, IDemands demands, long footprint){
+		Runtime runtime = Runtime.getRuntime();
+		if(footprint > runtime.maxMemory() / 2){
+			System.out.println(n + "\t" + type + "\t" + String.format("%.1f", footprint / 1e6) + " (does not fit)\t-\t-\t-\t-");
+			return;
+		}
+		long before = usedMemory();
+		long start = System.nanoTime();
+		IDistanceMatrix distances = build(type, coordinates);
+		long built = System.nanoTime();
+		long heap = usedMemory() - before;
+
+		Random rnd = new Random(7);
+		double sum = 0;
+		long readStart = System.nanoTime();
+		for(int r=0; r<READS; r++)
+			sum += distances.getDistance(rnd.nextInt(n + 1), rnd.nextInt(n + 1));
+		long readTime = System.nanoTime() - readStart;
+
+		long cwStart = System.nanoTime();
+		SavingsStore savings = n <= FULL_SAVINGS_LIMIT ? SavingsStore.calc(distances) : SavingsStore.calc(distances, NearestNeighbors.calc(coordinates, 20));
+		VRPSolution solution = (VRPSolution) new ClarkeWright(distances, demands, 200, savings).run();
+		long cwTime = System.nanoTime() - cwStart;
+
+		System.out.println(n + "\t" + type + "\t" + String.format("%.1f", heap / 1e6) + "\t" + String.format("%.1f", (built - start) / 1e6)
+				+ "\t" + String.format("%.1f", (double) readTime / READS) + "\t" + String.format("%.1f", cwTime / 1e6) + "\t" + solution.getOF());
+		sink = sum;
+	}
+
+	private static IDistanceMatrix build(String type, double[][] coordinates){
+		switch(type){
+		case "array":
+			return new ArrayDistanceMatrix(EuclideanCalculator.calc(coordinates));
+		case "packed":
+			return new TriangularDistanceMatrix(coordinates, false);
+		case "packed float":
+			return new TriangularDistanceMatrix(coordinates, true);
+		default:
+			return new CoordinateDistanceMatrix(coordinates);
+		}
+	}
+
+	/**
+	 * @return the heap used after a garbage collection, in bytes
+	 */
+	private static long usedMemory(){
+		Runtime runtime = Runtime.getRuntime();
+		for(int k=0; k<3; k++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
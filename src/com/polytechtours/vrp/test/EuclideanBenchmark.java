@@ -0,0 +1,77 @@
+package com.polytechtours.vrp.test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import com.polytechtours.vrp.util.EuclideanCalculator;
+
+/**
+ * Times the construction of a full Euclidean distance matrix on a synthetic instance: the scalar path (one call to
+ * {@link EuclideanCalculator#calc(double, double, double, double)} per pair, mirrored in the lower half), the row path
+ * {@link EuclideanCalculator#calc(double[], double[])} and its parallel version on the common pool. Both row paths are
+ * checked to be bit-identical to the scalar path. The best run is reported.</br>
+ * Usage: <code>EuclideanBenchmark [size] [repetitions]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 31, 2018
+ *
+ */
+public class EuclideanBenchmark {
+
+	public static void main(String[] args){
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		double[][] coordinates = CWBenchmark.syntheticCoordinates(n, 42);
+		double[] x = new double[n + 1];
+		double[] y = new double[n + 1];
+		for(int i=0; i<=n; i++){
+			x[i] = coordinates[i][0];
+			y[i] = coordinates[i][1];
+		}
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+
+		long scalar = Long.MAX_VALUE, rows = Long.MAX_VALUE, parallel = Long.MAX_VALUE;
+		for(int k=0; k<repetitions; k++){
+			long start = System.nanoTime();
+			double[][] reference = scalar(coordinates);
+			scalar = Math.min(scalar, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			double[][] matrix = EuclideanCalculator.calc(x, y);
+			rows = Math.min(rows, System.nanoTime() - start);
+			check(reference, matrix, "rows");
+			matrix = null;
+
+			start = System.nanoTime();
+			matrix = EuclideanCalculator.calc(x, y, pool);
+			parallel = Math.min(parallel, System.nanoTime() - start);
+			check(reference, matrix, "parallel rows");
+		}
+		System.out.println("n=" + (n + 1) + "\tthreads=" + pool.getParallelism() + "\tscalar=" + (scalar / 1000000.0) + " ms\trows=" + (rows / 1000000.0)
+				+ " ms (x" + String.format("%.1f", (double) scalar / rows) + ")\tparallel rows=" + (parallel / 1000000.0) + " ms (x" + String.format("%.1f", (double) scalar / parallel) + ")");
+	}
+
+	/**
+	 * Builds the matrix one pair at a time
+	 */
+	private static double[][] scalar(double[][] coordinates){
+		int n = coordinates.length;
+		double[][] matrix = new double[n][n];
+		for(int i=0; i<n; i++){
+			for(int j=i+1; j<n; j++){
+				matrix[i][j] = EuclideanCalculator.calc(coordinates[i][0], coordinates[i][1], coordinates[j][0], coordinates[j][1]);
+				matrix[j][i] = matrix[i][j];
+			}
+		}
+		return matrix;
+	}
+
+	private static void check(double[][] reference, double[][] matrix, String path){
+		for(int i=0; i<reference.length; i++){
+			if(!Arrays.equals(reference[i], matrix[i]))
+				throw new IllegalStateException("the " + path + " path differs from the scalar path on row " + i);
+		}
+	}
+
+}
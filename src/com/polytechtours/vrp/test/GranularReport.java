@@ -0,0 +1,65 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPInstanceReader;
+import com.polytechtours.vrp.util.NearestNeighbors;
+
+/**
+ * Compares the granular mode of {@link ClarkeWright} (savings restricted to the k nearest neighbours of each customer)
+ * with the full savings list on every instance of a directory: for each k, the objective gap to the full list and the
+ * time spent building the savings (neighbour lists included) and merging.</br>
+ * Usage: <code>GranularReport [directory] [k1,k2,...]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 23, 2018
+ *
+ */
+public class GranularReport {
+
+	public static void main(String[] args){
+		File directory = new File(args.length > 0 ? args[0] : "data/CMT");
+		int[] ks = args.length > 1 ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray() : new int[]{5, 10, 15, 20, 30, 40};
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+
+		System.out.println("instance\tk\tsavings\tOF\tgap\tsavings time (ms)\tmerge time (ms)");
+		for(File file : files){
+			@SuppressWarnings("resource")
+			VRPREPInstanceReader reader = new VRPREPInstanceReader(file.getPath());
+			double[][] coordinates = reader.getCoordinates();
+			IDistanceMatrix distances = reader.getDistanceMatrix();
+			IDemands demands = reader.getDemands();
+			double Q = reader.getCapacity("0");
+
+			long start = System.nanoTime();
+			SavingsStore full = SavingsStore.calc(distances);
+			long built = System.nanoTime();
+			VRPSolution reference = (VRPSolution) new ClarkeWright(distances, demands, Q, full).run();
+			long solved = System.nanoTime();
+			print(file.getName(), "all", full.size(), reference.getOF(), reference.getOF(), built - start, solved - built);
+
+			for(int k : ks){
+				start = System.nanoTime();
+				SavingsStore granular = SavingsStore.calc(distances, NearestNeighbors.calc(coordinates, k));
+				built = System.nanoTime();
+				VRPSolution solution = (VRPSolution) new ClarkeWright(distances, demands, Q, granular).run();
+				solved = System.nanoTime();
+				print(file.getName(), String.valueOf(k), granular.size(), solution.getOF(), reference.getOF(), built - start, solved - built);
+			}
+		}
+	}
+
+	private static void print(String instance, String k, int savings, double of, double reference, long savingsTime, long mergeTime){
+		System.out.println(instance + "\t" + k + "\t" + savings + "\t" + String.format("%.2f", of) + "\t" + String.format("%+.2f%%", 100 * (of - reference) / reference)
+				+ "\t" + String.format("%.2f", savingsTime / 1e6) + "\t" + String.format("%.2f", mergeTime / 1e6));
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.InterRouteSearch;
+import com.polytechtours.vrp.cw.IntraRouteSearch;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.InstanceGenerator;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+import com.polytechtours.vrp.util.NearestNeighbors;
+
+/**
+ * Runs {@link InterRouteSearch} and then {@link IntraRouteSearch} after {@link ClarkeWright} on every instance of a
+ * directory, then on generated instances (see {@link InstanceGenerator}) of larger sizes, and reports the objective and
+ * the number of routes after each stage, the moves applied and the time of each search. The solutions are checked as in
+ * {@link IntraRouteReport}, and the loads against the capacity.</br>
+ * Usage: <code>InterRouteReport [directory] [k] [generated sizes, comma separated]</code> (default: data/CMT, 20 and
+ * 1000,4000)
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class InterRouteReport {
+
+	public static void main(String[] args){
+		File directory = new File(args.length > 0 ? args[0] : "data/CMT");
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		String sizes = args.length > 2 ? args[2] : "1000,4000";
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+
+		System.out.println("instance\tCW\troutes\tinter\troutes\trelocate/swap/2-opt*\tinter (ms)\tintra\tintra (ms)\tgain");
+		for(File file : files)
+			report(file, file.getName(), k);
+
+		// generated instances, so that the scaling of the searches is measured beyond the size of the directory
+		for(String size : sizes.split(",")){
+			if(size.isEmpty())
+				continue;
+			int n = Integer.parseInt(size.trim());
+			try{
+				File file = File.createTempFile("inter", ".xml");
+				file.deleteOnExit();
+				new InstanceGenerator(n, 0).write(file.getPath());
+				report(file, "generated-" + n, k);
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Runs the stages on an instance and prints its line of the report
+	 * @param file the instance file
+	 * @param name the name of the instance in the report
+	 * @param k the number of neighbours per customer
+	 */
+	private static void report(File file, String name, int k){
+		try(VRPREPStreamReader reader = new VRPREPStreamReader(file.getPath())){
+			IDistanceMatrix distances = reader.getDistanceMatrix();
+			IDemands demands = reader.getDemands();
+			double Q = reader.getCapacity("0");
+			int[][] neighbors = NearestNeighbors.calc(reader.getCoordinates(), k);
+
+			VRPSolution solution = (VRPSolution) new ClarkeWright(distances, demands, Q).run();
+			double cw = solution.getOF();
+			int cwRoutes = solution.size();
+
+			InterRouteSearch inter = new InterRouteSearch(distances, demands, Q, neighbors);
+			long start = System.nanoTime();
+			inter.improve(solution);
+			long interTime = System.nanoTime() - start;
+			check(solution, distances, demands, Q, name);
+			double interOF = solution.getOF();
+
+			IntraRouteSearch intra = new IntraRouteSearch(distances, neighbors);
+			start = System.nanoTime();
+			intra.improve(solution);
+			long intraTime = System.nanoTime() - start;
+			check(solution, distances, demands, Q, name);
+
+			System.out.println(name + "\t" + String.format("%.2f", cw) + "\t" + cwRoutes + "\t" + String.format("%.2f", interOF) + "\t"
+					+ solution.size() + "\t" + inter.getRelocations() + "/" + inter.getSwaps() + "/" + inter.getTailExchanges() + "\t"
+					+ String.format("%.2f", interTime / 1e6) + "\t" + String.format("%.2f", solution.getOF()) + "\t" + String.format("%.2f", intraTime / 1e6) + "\t"
+					+ String.format("%.2f%%", 100 * (cw - solution.getOF()) / cw));
+		}
+	}
+
+	private static void check(VRPSolution solution, IDistanceMatrix distances, IDemands demands, double Q, String name){
+		IntraRouteReport.check(solution, distances, name);
+		for(int r=0; r<solution.size(); r++){
+			double load = 0;
+			for(int p=0; p<solution.size(r); p++)
+				load += solution.getNode(r, p) == 0 ? 0 : demands.getDemand(solution.getNode(r, p));
+			if(load > Q || Math.abs(load - solution.getLoad(r)) > 1e-6)
+				throw new IllegalStateException(name + ": load of route " + r + " is " + solution.getLoad(r) + " (" + load + ") for a capacity of " + Q);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.IntraRouteSearch;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+import com.polytechtours.vrp.util.NearestNeighbors;
+
+/**
+ * Runs {@link IntraRouteSearch} after {@link ClarkeWright} on every instance of a directory and reports the objective
+ * before and after, the number of improved routes and the time of the search (total and on the slowest route). The
+ * improved solution is checked: every customer is visited once, and the route costs and the objective function match
+ * a full recomputation.</br>
+ * Usage: <code>IntraRouteReport [directory] [k]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class IntraRouteReport {
+
+	public static void main(String[] args){
+		File directory = new File(args.length > 0 ? args[0] : "data/CMT");
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+
+		System.out.println("instance\tCW\timproved\tgain\troutes improved\tsearch (ms)\tslowest route (ms)");
+		for(File file : files){
+			try(VRPREPStreamReader reader = new VRPREPStreamReader(file.getPath())){
+				IDistanceMatrix distances = reader.getDistanceMatrix();
+				IDemands demands = reader.getDemands();
+				double Q = reader.getCapacity("0");
+				int[][] neighbors = NearestNeighbors.calc(reader.getCoordinates(), k);
+
+				VRPSolution solution = (VRPSolution) new ClarkeWright(distances, demands, Q).run();
+				double before = solution.getOF();
+				IntraRouteSearch search = new IntraRouteSearch(distances, neighbors);
+				search.improve(solution);
+				check(solution, distances, file.getName());
+
+				int improved = 0;
+				long total = 0, slowest = 0;
+				for(int r=0; r<search.getRoutes(); r++){
+					if(search.getGain(r) > 0)
+						improved++;
+					total += search.getTime(r);
+					slowest = Math.max(slowest, search.getTime(r));
+				}
+				System.out.println(file.getName() + "\t" + String.format("%.2f", before) + "\t" + String.format("%.2f", solution.getOF()) + "\t"
+						+ String.format("%.2f%%", 100 * (before - solution.getOF()) / before) + "\t" + improved + "/" + search.getRoutes() + "\t"
+						+ String.format("%.2f", total / 1e6) + "\t" + String.format("%.3f", slowest / 1e6));
+			}
+		}
+	}
+
+	/**
+	 * Checks that a solution visits every customer once and that its costs are consistent
+	 * @throws IllegalStateException if the solution is not consistent
+	 */
+	static void check(VRPSolution solution, IDistanceMatrix distances, String name){
+		int[] visits = new int[distances.size()];
+		double of = 0;
+		for(int r=0; r<solution.size(); r++){
+			double cost = 0;
+			for(int p=0; p<solution.size(r); p++){
+				visits[solution.getNode(r, p)]++;
+				if(p > 0)
+					cost += distances.getDistance(solution.getNode(r, p - 1), solution.getNode(r, p));
+			}
+			if(Math.abs(cost - solution.getCost(r)) > 1e-6 * Math.max(1, cost))
+				throw new IllegalStateException(name + ": cost of route " + r + " is " + solution.getCost(r) + " but should be " + cost);
+			of += cost;
+		}
+		for(int i=1; i<visits.length; i++)
+			if(visits[i] != 1 || solution.getRouteIdByNodeId(i) < 0 || !solution.containsNode(i))
+				throw new IllegalStateException(name + ": customer " + i + " is visited " + visits[i] + " times");
+		if(Math.abs(of - solution.getOF()) > 1e-6 * Math.max(1, of))
+			throw new IllegalStateException(name + ": objective function is " + solution.getOF() + " but should be " + of);
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.cw.SolverMetrics;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+
+/**
+ * Runs {@link ClarkeWright} with a {@link SolverMetrics} on every instance of a directory and prints one JSON object
+ * per instance (its name, objective function and metrics), e.g., to feed a dashboard. The objective function is also
+ * checked against a run without listener.</br>
+ * Usage: <code>MetricsReport [directory]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class MetricsReport {
+
+	public static void main(String[] args){
+		File directory = new File(args.length > 0 ? args[0] : "data/CMT");
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+
+		for(File file : files){
+			try(VRPREPStreamReader reader = new VRPREPStreamReader(file.getPath())){
+				IDistanceMatrix distances = reader.getDistanceMatrix();
+				double Q = reader.getCapacity("0");
+				double expected = new ClarkeWright(distances, reader.getDemands(), Q).run().getOF();
+
+				ClarkeWright cw = new ClarkeWright(distances, reader.getDemands(), Q, SavingsStore.calc(distances));
+				SolverMetrics metrics = new SolverMetrics();
+				cw.setListener(metrics);
+				double of = cw.run().getOF();
+				if(Double.compare(of, expected) != 0)
+					throw new IllegalStateException("the listener changed the solution of " + file.getName());
+				System.out.println("{\"instance\":\"" + file.getName() + "\",\"of\":" + of + ",\"metrics\":" + metrics.toJson() + "}");
+			}
+		}
+	}
+
+}
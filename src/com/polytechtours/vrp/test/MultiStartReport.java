@@ -0,0 +1,65 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.MultiStartClarkeWright;
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+
+/**
+ * Compares {@link MultiStartClarkeWright} with the plain {@link ClarkeWright} on every instance of a directory:
+ * objective functions, gain, best start and wall-clock time. The multi-start is run on one thread and on the given
+ * number of threads, and both runs are checked to return the same solution.</br>
+ * Usage: <code>MultiStartReport [directory] [starts] [threads] [seed]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class MultiStartReport {
+
+	public static void main(String[] args){
+		File directory = new File(args.length > 0 ? args[0] : "data/CMT");
+		int starts = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+
+		System.out.println("instance\tCW\tmulti-start\tgain\tbest start\t1 thread (ms)\t" + threads + " threads (ms)");
+		for(File file : files){
+			try(VRPREPStreamReader reader = new VRPREPStreamReader(file.getPath())){
+				IDistanceMatrix distances = reader.getDistanceMatrix();
+				IDemands demands = reader.getDemands();
+				double Q = reader.getCapacity("0");
+				SavingsStore savings = SavingsStore.calc(distances);
+				double plain = new ClarkeWright(distances, demands, Q, savings).run().getOF();
+
+				long[] times = new long[2];
+				double[] ofs = new double[2];
+				int[] bests = new int[2];
+				for(int r=0; r<2; r++){
+					MultiStartClarkeWright multiStart = new MultiStartClarkeWright(distances, demands, Q, savings);
+					multiStart.setStarts(starts);
+					multiStart.setSeed(seed);
+					multiStart.setThreads(r == 0 ? 1 : threads);
+					long start = System.nanoTime();
+					ofs[r] = multiStart.run().getOF();
+					times[r] = System.nanoTime() - start;
+					bests[r] = multiStart.getBestStart();
+				}
+				if(Double.compare(ofs[0], ofs[1]) != 0 || bests[0] != bests[1])
+					throw new IllegalStateException("the number of threads changed the solution of " + file.getName());
+				System.out.println(file.getName() + "\t" + String.format("%.2f", plain) + "\t" + String.format("%.2f", ofs[0]) + "\t"
+						+ String.format("%.2f%%", 100 * (plain - ofs[0]) / plain) + "\t" + bests[0] + "\t"
+						+ String.format("%.2f", times[0] / 1e6) + "\t" + String.format("%.2f", times[1] / 1e6));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.OnlineRouter;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.ArrayDemands;
+import com.polytechtours.vrp.data.ArrayDistanceMatrix;
+import com.polytechtours.vrp.data.GrowableDemands;
+import com.polytechtours.vrp.data.GrowableDistanceMatrix;
+import com.polytechtours.vrp.data.InstanceGenerator;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+
+/**
+ * Streams the orders of a synthetic instance (see {@link InstanceGenerator}) through an {@link OnlineRouter}: the plan
+ * starts as the {@link ClarkeWright} solution of the first half of the customers, the other half is added one customer
+ * at a time, and after each addition a customer of the plan is removed with a given probability. The report gives the
+ * latency of the events (p50, p99 and largest of the last ones), the work of the background re-merges, and the final
+ * objective against {@link ClarkeWright} run from scratch on the customers left. The final plan is checked: every
+ * customer left is visited once, every removed customer is not, and the loads, costs and objective function match a
+ * full recomputation.</br>
+ * Usage: <code>OnlineReport [customers] [removal probability] [seed]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class OnlineReport {
+
+	public static void main(String[] args) throws InterruptedException{
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		double removal = args.length > 1 ? Double.parseDouble(args[1]) : 0.1;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+		double[] x, y, q;
+		double Q;
+		try{
+			File file = File.createTempFile("online", ".xml");
+			file.deleteOnExit();
+			new InstanceGenerator(n, seed).write(file.getPath());
+			try(VRPREPStreamReader reader = new VRPREPStreamReader(file.getPath())){
+				x = reader.getX();
+				y = reader.getY();
+				q = reader.getDemandArray();
+				Q = reader.getCapacity("0");
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+
+		int initial = n / 2;
+		GrowableDistanceMatrix distances = new GrowableDistanceMatrix(Arrays.copyOf(x, initial + 1), Arrays.copyOf(y, initial + 1));
+		GrowableDemands demands = new GrowableDemands(Arrays.copyOf(q, initial + 1));
+		VRPSolution solution = (VRPSolution) new ClarkeWright(distances, demands, Q).run();
+		double start = solution.getOF();
+
+		Random random = new Random(seed);
+		List<Integer> active = new ArrayList<>();
+		for(int i=1; i<=initial; i++)
+			active.add(i);
+		long begin = System.nanoTime();
+		double streamed;
+		OnlineRouter router = new OnlineRouter(distances, demands, Q, solution);
+		try{
+			for(int i=initial + 1; i<=n; i++){
+				active.add(router.addCustomer(x[i], y[i], q[i]));
+				if(random.nextDouble() < removal){
+					int k = random.nextInt(active.size());
+					router.removeCustomer(active.get(k));
+					active.set(k, active.get(active.size() - 1));
+					active.remove(active.size() - 1);
+				}
+			}
+			streamed = router.getSolution().getOF();
+			router.awaitIdle();
+		}finally{
+			router.close();
+		}
+		long elapsed = System.nanoTime() - begin;
+		VRPSolution plan = router.getSolution();
+		check(plan, distances, demands, Q, active);
+
+		// Clarke-Wright from scratch on the customers left
+		int[] customers = new int[active.size() + 1];
+		for(int i=0; i<active.size(); i++)
+			customers[i + 1] = active.get(i);
+		ArrayDistanceMatrix local = new ArrayDistanceMatrix(customers.length);
+		ArrayDemands localDemands = new ArrayDemands(customers.length);
+		for(int a=0; a<customers.length; a++){
+			localDemands.setDemand(a, demands.getDemand(customers[a]));
+			for(int b=0; b<customers.length; b++)
+				local.setDistance(a, b, distances.getDistance(customers[a], customers[b]));
+		}
+		double scratch = new ClarkeWright(local, localDemands, Q).run().getOF();
+
+		System.out.println("customers\t" + n + " (" + initial + " initial, " + active.size() + " left)");
+		System.out.println("events\t" + router.getEvents() + " in " + String.format("%.2f", elapsed / 1e6) + " ms");
+		System.out.println("latency p50/p99/max (us)\t" + String.format("%.1f", router.getLatency(0.5) / 1e3) + "/"
+				+ String.format("%.1f", router.getLatency(0.99) / 1e3) + "/" + String.format("%.1f", router.getLatency(1) / 1e3));
+		System.out.println("re-merges/commits/conflicts\t" + router.getRemerges() + "/" + router.getCommits() + "/" + router.getConflicts());
+		System.out.println("re-merge gain\t" + String.format("%.2f", router.getRemergeGain()));
+		System.out.println("initial CW\t" + String.format("%.2f", start));
+		System.out.println("after stream\t" + String.format("%.2f", streamed));
+		System.out.println("final\t" + String.format("%.2f", plan.getOF()) + " (" + plan.size() + " routes)");
+		System.out.println("CW from scratch\t" + String.format("%.2f", scratch) + " (gap " + String.format("%.2f%%", 100 * (plan.getOF() - scratch) / scratch) + ")");
+	}
+
+	/**
+	 * Checks that a plan visits the active customers once and no other, and that its loads and costs are consistent
+	 * @throws IllegalStateException if the plan is not consistent
+	 */
+	private static void check(VRPSolution solution, GrowableDistanceMatrix distances, GrowableDemands demands, double Q, List<Integer> active){
+		boolean[] expected = new boolean[distances.size()];
+		for(int node : active)
+			expected[node] = true;
+		int[] visits = new int[distances.size()];
+		double of = 0;
+		for(int r=0; r<solution.size(); r++){
+			double cost = 0, load = 0;
+			for(int p=0; p<solution.size(r); p++){
+				int node = solution.getNode(r, p);
+				visits[node]++;
+				if(node != 0)
+					load += demands.getDemand(node);
+				if(p > 0)
+					cost += distances.getDistance(solution.getNode(r, p - 1), node);
+			}
+			if(solution.getNode(r, 0) != 0 || solution.getNode(r, solution.size(r) - 1) != 0)
+				throw new IllegalStateException("route " + r + " does not start and end at the depot");
+			if(Math.abs(cost - solution.getCost(r)) > 1e-6 * Math.max(1, cost))
+				throw new IllegalStateException("cost of route " + r + " is " + solution.getCost(r) + " but should be " + cost);
+			if(load > Q || Math.abs(load - solution.getLoad(r)) > 1e-6)
+				throw new IllegalStateException("load of route " + r + " is " + solution.getLoad(r) + " (" + load + ") for a capacity of " + Q);
+			of += cost;
+		}
+		for(int i=1; i<visits.length; i++)
+			if(visits[i] != (expected[i] ? 1 : 0) || solution.containsNode(i) != expected[i])
+				throw new IllegalStateException("customer " + i + " is visited " + visits[i] + " times");
+		if(Math.abs(of - solution.getOF()) > 1e-6 * Math.max(1, of))
+			throw new IllegalStateException("objective function is " + solution.getOF() + " but should be " + of);
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IInstanceReader;
+import com.polytechtours.vrp.data.InstanceGenerator;
+import com.polytechtours.vrp.data.VRPREPInstanceReader;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+
+/**
+ * Times the parsing of VRP-REP instances (coordinates, demands and capacity) with the JDOM reader
+ * ({@link VRPREPInstanceReader}) and the streaming reader ({@link VRPREPStreamReader}), and checks that both readers
+ * return the same data. The instances are CMT05 and synthetic instances with uniformly distributed customers written
+ * to a temporary file by {@link InstanceGenerator}. The best run is reported.</br>
+ * Usage: <code>ParseBenchmark [n1,n2,...] [repetitions]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 1, 2018
+ *
+ */
+public class ParseBenchmark {
+
+	public static void main(String[] args) throws IOException{
+		String[] sizes = (args.length > 0 ? args[0] : "10000,100000").split(",");
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		benchmark("CMT05", "data/CMT/CMT05.xml", repetitions);
+		for(String size : sizes){
+			int n = Integer.parseInt(size);
+			File file = File.createTempFile("U" + n, ".xml");
+			file.deleteOnExit();
+			new InstanceGenerator(n, 42).write(file.getPath());
+			benchmark("U" + n, file.getPath(), repetitions);
+			file.delete();
+		}
+	}
+
+	/**
+	 * Times both readers on an instance file
+	 * @param name the name of the instance
+	 * @param path the path to the instance file
+	 * @param repetitions the number of timed runs
+	 */
+	public static void benchmark(String name, String path, int repetitions){
+		long dom = Long.MAX_VALUE, stream = Long.MAX_VALUE;
+		for(int k=0; k<repetitions; k++){
+			long start = System.nanoTime();
+			Instance expected = read(new VRPREPInstanceReader(path));
+			dom = Math.min(dom, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			Instance actual = read(new VRPREPStreamReader(path));
+			stream = Math.min(stream, System.nanoTime() - start);
+
+			if(!expected.equals(actual))
+				throw new IllegalStateException("the readers disagree on " + name);
+		}
+		System.out.println(name + "\tsize=" + (new File(path).length() >> 10) + " KB\tJDOM=" + (dom / 1000000.0) + " ms\tStAX=" + (stream / 1000000.0)
+				+ " ms (x" + String.format("%.1f", (double) dom / stream) + ")");
+	}
+
+	/**
+	 * Reads the data of an instance and closes the reader
+	 */
+	private static Instance read(IInstanceReader reader){
+		try(IInstanceReader r = reader){
+			Instance instance = new Instance();
+			instance.coordinates = r.getCoordinates();
+			IDemands demands = r.getDemands();
+			instance.demands = new double[instance.coordinates.length];
+			for(int i=0; i<instance.demands.length; i++)
+				instance.demands[i] = demands.getDemand(i);
+			instance.capacity = r.getCapacity("0");
+			return instance;
+		}
+	}
+
+	/**
+	 * The data read from an instance
+	 */
+	private static class Instance {
+		private double[][] coordinates;
+		private double[] demands;
+		private double capacity;
+
+		@Override
+		public boolean equals(Object o){
+			Instance other = (Instance) o;
+			return Arrays.deepEquals(coordinates, other.coordinates) && Arrays.equals(demands, other.demands) && Double.compare(capacity, other.capacity) == 0;
+		}
+
+		@Override
+		public int hashCode(){
+			return Arrays.deepHashCode(coordinates);
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.SavingsPortfolio;
+import com.polytechtours.vrp.data.IDemands;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+
+/**
+ * Compares {@link SavingsPortfolio} on its default grid with the plain {@link ClarkeWright} on every instance of a
+ * directory: objective functions, gain, best parameters, number of runs and wall-clock time of the portfolio.</br>
+ * Usage: <code>PortfolioReport [directory] [threads] [time limit (ms)]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 5, 2018
+ *
+ */
+public class PortfolioReport {
+
+	public static void main(String[] args){
+		File directory = new File(args.length > 0 ? args[0] : "data/CMT");
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long timeLimit = args.length > 2 ? Long.parseLong(args[2]) : 0;
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+
+		System.out.println("instance\tCW\tportfolio\tgain\tlambda\tmu\tnu\truns\ttime (ms)");
+		for(File file : files){
+			try(VRPREPStreamReader reader = new VRPREPStreamReader(file.getPath())){
+				IDistanceMatrix distances = reader.getDistanceMatrix();
+				IDemands demands = reader.getDemands();
+				double Q = reader.getCapacity("0");
+				double plain = new ClarkeWright(distances, demands, Q).run().getOF();
+
+				SavingsPortfolio portfolio = new SavingsPortfolio(distances, demands, Q);
+				portfolio.setThreads(threads);
+				portfolio.setTimeLimit(timeLimit);
+				long start = System.nanoTime();
+				double of = portfolio.run().getOF();
+				long time = System.nanoTime() - start;
+				double[] p = portfolio.getBestParameters();
+				System.out.println(file.getName() + "\t" + String.format("%.2f", plain) + "\t" + String.format("%.2f", of) + "\t"
+						+ String.format("%.2f%%", 100 * (plain - of) / plain) + "\t" + p[0] + "\t" + p[1] + "\t" + p[2] + "\t"
+						+ portfolio.getRuns() + "/" + portfolio.getGridSize() + "\t" + String.format("%.2f", time / 1e6));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.polytechtours.vrp.test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
+/**
+ * Times the generation and sorting of the savings ({@link SavingsStore}) sequentially and in parallel with 1, 2, 4, ...
+ * threads up to the number of available cores, and checks that every parallel store is identical to the sequential one.
+ * The time of each build is split into its generation and sort phases, and the speedup is also given per thread
+ * (efficiency), so that the phase that stops scaling can be seen.</br>
+ * Usage: <code>SavingsBenchmark [synthetic size] [repetitions]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 21, 2018
+ *
+ */
+public class SavingsBenchmark {
+
+	public static void main(String[] args){
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		IDistanceMatrix distances = CWBenchmark.syntheticDistances(n, 42);
+
+		long best = Long.MAX_VALUE;
+		SavingsStore reference = null;
+		for(int k=0; k<repetitions; k++){
+			long start = System.nanoTime();
+			reference = SavingsStore.calc(distances);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.println("sequential\tn=" + distances.size() + "\tsavings=" + reference.size() + "\ttime=" + (best / 1000000.0) + " ms\tgeneration="
+				+ (reference.getGenerationTime() / 1000000.0) + " ms\tsort=" + (reference.getSortTime() / 1000000.0) + " ms");
+		double sequential = best;
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		for(int threads=1; ; threads=Math.min(2 * threads, cores)){
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			best = Long.MAX_VALUE;
+			SavingsStore store = null, fastest = null;
+			for(int k=0; k<repetitions; k++){
+				long start = System.nanoTime();
+				store = SavingsStore.calc(distances, pool);
+				long time = System.nanoTime() - start;
+				if(time < best){
+					best = time;
+					fastest = store;
+				}
+			}
+			pool.shutdown();
+			System.out.println("parallel\tthreads=" + threads + "\ttime=" + (best / 1000000.0) + " ms\tgeneration=" + (fastest.getGenerationTime() / 1000000.0)
+					+ " ms\tsort=" + (fastest.getSortTime() / 1000000.0) + " ms\tspeedup=" + (sequential / best) + "\tefficiency=" + (sequential / best / threads)
+					+ "\tidentical=" + identical(reference, store));
+			if(threads == cores)
+				break;
+		}
+	}
+
+	/**
+	 * @return true if both stores hold the same savings in the same order
+	 */
+	private static boolean identical(SavingsStore a, SavingsStore b){
+		if(a.size() != b.size())
+			return false;
+		for(int k=0; k<a.size(); k++){
+			if(a.getSourceId(k) != b.getSourceId(k) || a.getTargetId(k) != b.getTargetId(k) || a.getSaving(k) != b.getSaving(k))
+				return false;
+		}
+		return true;
+	}
+
+}
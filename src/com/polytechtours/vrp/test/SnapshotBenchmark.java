@@ -0,0 +1,82 @@
+package com.polytechtours.vrp.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.InstanceGenerator;
+import com.polytechtours.vrp.data.InstanceSnapshot;
+import com.polytechtours.vrp.data.VRPREPInstanceReader;
+
+/**
+ * Compares the startup of a run (instance, distance matrix and sorted savings ready) from the XML file with
+ * {@link VRPREPInstanceReader} and from an {@link InstanceSnapshot}, on CMT05 and on a synthetic instance written to a
+ * temporary file. The snapshot startup is also timed before the savings are read. The time to build the snapshot is reported separately, and the solutions of {@link ClarkeWright} on
+ * both startups are checked to be identical. The best run is reported.</br>
+ * Usage: <code>SnapshotBenchmark [synthetic size] [repetitions]</code>
+ *
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 2, 2018
+ *
+ */
+public class SnapshotBenchmark {
+
+	public static void main(String[] args) throws IOException{
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		benchmark("CMT05", "data/CMT/CMT05.xml", repetitions);
+		File file = File.createTempFile("U" + n, ".xml");
+		file.deleteOnExit();
+		new InstanceGenerator(n, 42).write(file.getPath());
+		benchmark("U" + n, file.getPath(), repetitions);
+		file.delete();
+	}
+
+	/**
+	 * Times both startups on an instance file
+	 * @param name the name of the instance
+	 * @param path the path to the instance file
+	 * @param repetitions the number of timed runs
+	 */
+	public static void benchmark(String name, String path, int repetitions) throws IOException{
+		File snapshotFile = File.createTempFile(name, ".snap");
+		snapshotFile.deleteOnExit();
+		snapshotFile.delete();
+
+		long start = System.nanoTime();
+		InstanceSnapshot.open(path, snapshotFile.getPath(), true, SavingsStore::calc).close();
+		long build = System.nanoTime() - start;
+
+		long xml = Long.MAX_VALUE, snapshot = Long.MAX_VALUE, matrix = Long.MAX_VALUE;
+		double expected = 0, actual = 0;
+		for(int k=0; k<repetitions; k++){
+			start = System.nanoTime();
+			try(VRPREPInstanceReader reader = new VRPREPInstanceReader(path)){
+				IDistanceMatrix distances = reader.getDistanceMatrix();
+				SavingsStore savings = SavingsStore.calc(distances);
+				xml = Math.min(xml, System.nanoTime() - start);
+				expected = ((VRPSolution) new ClarkeWright(distances, reader.getDemands(), reader.getCapacity("0"), savings).run()).getOF();
+			}
+
+			start = System.nanoTime();
+			try(InstanceSnapshot reader = InstanceSnapshot.open(path, snapshotFile.getPath(), true, SavingsStore::calc)){
+				IDistanceMatrix distances = reader.getDistanceMatrix();
+				matrix = Math.min(matrix, System.nanoTime() - start);
+				SavingsStore savings = SavingsStore.of(reader);
+				snapshot = Math.min(snapshot, System.nanoTime() - start);
+				actual = ((VRPSolution) new ClarkeWright(distances, reader.getDemands(), reader.getCapacity("0"), savings).run()).getOF();
+			}
+			if(expected != actual)
+				throw new IllegalStateException("the snapshot of " + name + " gives a different solution");
+		}
+		System.out.println(name + "\tsnapshot=" + (snapshotFile.length() >> 10) + " KB\tbuild=" + (build / 1000000.0) + " ms\tXML startup=" + (xml / 1000000.0)
+				+ " ms\tsnapshot startup=" + (matrix / 1000000.0) + " ms without savings, " + (snapshot / 1000000.0) + " ms (x" + String.format("%.1f", (double) xml / snapshot) + ")\tOF=" + actual);
+		snapshotFile.delete();
+	}
+
+}
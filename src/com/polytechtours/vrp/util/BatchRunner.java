@@ -0,0 +1,338 @@
+package com.polytechtours.vrp.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.polytechtours.vrp.cw.ClarkeWright;
+import com.polytechtours.vrp.cw.IAlgorithmFactory;
+import com.polytechtours.vrp.cw.IOptimizationAlgorithm;
+import com.polytechtours.vrp.cw.ISolution;
+import com.polytechtours.vrp.cw.SavingsStore;
+import com.polytechtours.vrp.cw.VRPSolution;
+import com.polytechtours.vrp.data.IDistanceMatrix;
+import com.polytechtours.vrp.data.VRPREPStreamReader;
+
+/**
+ * Solves a batch of VRP-REP instances concurrently on a bounded pool of threads. Each instance is parsed (with
+ * {@link VRPREPStreamReader}), its heuristic is built by an {@link IAlgorithmFactory} and run, and its {@link Result}
+ * is delivered as soon as it finishes.</br>
+ * Instances are scheduled largest first, which shortens the batch when sizes are uneven, and within a memory budget:
+ * before starting, an instance reserves an estimate of the heap it needs (see {@link #estimate(File)}) and waits until
+ * the running instances leave enough room. An instance larger than the whole budget waits for every other instance
+ * and then runs alone, so several huge instances never run at the same time.</br>
+ * Usage: <code>BatchRunner [-t threads] [directory or file]...</code> (default: all the files of <code>data/CMT</code>
+ * on one thread per core)
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Apr 3, 2018
+ *
+ */
+public class BatchRunner {
+
+	/**
+	 * Estimated number of bytes of XML per node, on the low side so that the node count is overestimated
+	 */
+	private static final long XML_BYTES_PER_NODE = 160;
+	/**
+	 * Estimated number of bytes of heap per pair of nodes: the full distance matrix (two doubles, 16 bytes) and the
+	 * saving of the pair in the {@link SavingsStore}, which takes as much while it is sorted as once it is built
+	 */
+	private static final long HEAP_BYTES_PER_PAIR = 16+SavingsStore.BYTES_PER_SAVING;
+	/**
+	 * Unit of the memory reservations, in bytes
+	 */
+	private static final long UNIT = 1 << 20;
+	/**
+	 * Builds {@link ClarkeWright} on the full list of savings
+	 */
+	public static final IAlgorithmFactory CLARKE_WRIGHT = (distances, demands, Q) -> new ClarkeWright(distances, demands, Q, SavingsStore.calc(distances));
+
+	/**
+	 * The number of threads solving instances
+	 */
+	private final int threads;
+	/**
+	 * The memory budget, in units of {@link #UNIT} bytes
+	 */
+	private final int budget;
+	/**
+	 * The builder of the heuristic of each instance
+	 */
+	private final IAlgorithmFactory factory;
+	/**
+	 * The type of the vehicles whose capacity is used
+	 */
+	private final String vehicleType;
+
+	/**
+	 * Constructs a runner solving each instance with {@link ClarkeWright} on its full list of savings, with one thread
+	 * per core and 80% of the maximum heap as memory budget
+	 */
+	public BatchRunner(){
+		this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory()/10*8, CLARKE_WRIGHT, "0");
+	}
+
+	/**
+	 * Constructs a runner
+	 * @param threads the number of threads solving instances
+	 * @param memoryBudget the heap the running instances can use, in bytes
+	 * @param factory the builder of the heuristic of each instance
+	 * @param vehicleType the type of the vehicles whose capacity is used
+	 */
+	public BatchRunner(int threads, long memoryBudget, IAlgorithmFactory factory, String vehicleType){
+		if(threads<1)
+			throw new IllegalArgumentException("argument threads must be positive (passed "+threads+")");
+		this.threads=threads;
+		this.budget=(int)Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget/UNIT));
+		this.factory=factory;
+		this.vehicleType=vehicleType;
+	}
+
+	/**
+	 * Solves a batch of instances and waits for all of them
+	 * @param files the instance files
+	 * @param sink receives the result of each instance as soon as it is solved, one at a time
+	 * @return the results, in the order of <code>files</code>. An instance that failed, whose result the sink rejected or
+	 * that was dropped because the calling thread was interrupted holds the error (see {@link Result#getError()}).
+	 */
+	public List<Result> run(List<File> files, Consumer<Result> sink){
+		Result[] results=new Result[files.size()];
+		Integer[] order=new Integer[files.size()];
+		for(int k=0;k<order.length;k++)
+			order[k]=k;
+		Arrays.sort(order, Comparator.comparingLong((Integer k) -> files.get(k).length()).reversed());
+
+		Semaphore memory=new Semaphore(budget, true);
+		ExecutorService executor=Executors.newFixedThreadPool(threads);
+		for(int k : order){
+			executor.execute(() -> {
+				File file=files.get(k);
+				int reservation=(int)Math.min(budget, Math.max(1, estimate(file)/UNIT));
+				memory.acquireUninterruptibly(reservation);
+				try{
+					results[k]=solve(file);
+				}finally{
+					memory.release(reservation);
+				}
+				try{
+					synchronized(sink){
+						sink.accept(results[k]);
+					}
+				}catch(Throwable e){
+					results[k].fail(e);
+				}
+			});
+		}
+		executor.shutdown();
+		try{
+			while(!executor.awaitTermination(1, TimeUnit.MINUTES));
+		}catch(InterruptedException e){
+			stop(executor);
+			Thread.currentThread().interrupt();
+		}
+		for(int k=0;k<results.length;k++){
+			if(results[k]==null){
+				results[k]=new Result(files.get(k).getName());
+				results[k].fail(new CancellationException("the batch was interrupted"));
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Interrupts the running instances, drops the waiting ones and waits until the threads are done, so that no
+	 * instance writes its result afterwards
+	 */
+	private static void stop(ExecutorService executor){
+		executor.shutdownNow();
+		boolean interrupted=false;
+		while(true){
+			try{
+				if(executor.awaitTermination(1, TimeUnit.MINUTES))
+					break;
+			}catch(InterruptedException e){
+				interrupted=true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Parses and solves an instance
+	 * @param file the instance file
+	 * @return the result, holding the error if the instance could not be solved (whatever the error)
+	 */
+	private Result solve(File file){
+		Result result=new Result(file.getName());
+		try{
+			long start=System.nanoTime();
+			VRPREPStreamReader reader=new VRPREPStreamReader(file.getPath());
+			IDistanceMatrix distances=reader.getDistanceMatrix();
+			long parsed=System.nanoTime();
+			IOptimizationAlgorithm algorithm=factory.create(distances, reader.getDemands(), reader.getCapacity(vehicleType));
+			long built=System.nanoTime();
+			ISolution solution=algorithm.run();
+			long solved=System.nanoTime();
+			result.parseTime=parsed-start;
+			result.setupTime=built-parsed;
+			result.runTime=solved-built;
+			result.n=distances.size();
+			result.of=solution.getOF();
+			result.routes=solution instanceof VRPSolution?((VRPSolution)solution).size():-1;
+		}catch(Throwable e){
+			result.fail(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Estimates the heap needed to solve an instance from the size of its file
+	 * @param file the instance file
+	 * @return the estimate, in bytes
+	 */
+	public static long estimate(File file){
+		long n=file.length()/XML_BYTES_PER_NODE+1;
+		return HEAP_BYTES_PER_PAIR*n*n/2;
+	}
+
+	/**
+	 * The result of an instance. Times are in nanoseconds.
+	 */
+	public static class Result {
+		/**
+		 * the name of the instance file
+		 */
+		private final String instance;
+		/**
+		 * the number of nodes (depot included)
+		 */
+		private int n;
+		/**
+		 * the objective function of the solution
+		 */
+		private double of=Double.NaN;
+		/**
+		 * the number of routes of the solution, -1 if unknown
+		 */
+		private int routes=-1;
+		/**
+		 * the time spent parsing the file and building the distance matrix
+		 */
+		private long parseTime;
+		/**
+		 * the time spent building the heuristic (for {@link ClarkeWright}, generating the savings)
+		 */
+		private long setupTime;
+		/**
+		 * the time spent running the heuristic (for {@link ClarkeWright}, the merge loop)
+		 */
+		private long runTime;
+		/**
+		 * the error that stopped the instance or the delivery of its result, <code>null</code> if it was solved and
+		 * delivered
+		 */
+		private Throwable error;
+
+		private Result(String instance){
+			this.instance=instance;
+		}
+
+		/**
+		 * Records an error, the first one being reported and the next ones suppressed
+		 */
+		private void fail(Throwable e){
+			if(error==null)
+				error=e;
+			else
+				error.addSuppressed(e);
+		}
+
+		public String getInstance(){
+			return instance;
+		}
+
+		public int getN(){
+			return n;
+		}
+
+		public double getOF(){
+			return of;
+		}
+
+		public int getRoutes(){
+			return routes;
+		}
+
+		public long getParseTime(){
+			return parseTime;
+		}
+
+		public long getSetupTime(){
+			return setupTime;
+		}
+
+		public long getRunTime(){
+			return runTime;
+		}
+
+		public Throwable getError(){
+			return error;
+		}
+
+		/**
+		 * @return the header of the lines of {@link #toString()}
+		 */
+		public static String header(){
+			return "instance\tn\tOF\troutes\tparse (ms)\tsavings (ms)\tmerge (ms)";
+		}
+
+		@Override
+		public String toString(){
+			if(error!=null)
+				return instance+"\tfailed: "+error;
+			return instance+"\t"+n+"\t"+of+"\t"+routes+"\t"+String.format("%.2f", parseTime/1e6)+"\t"+String.format("%.2f", setupTime/1e6)+"\t"+String.format("%.2f", runTime/1e6);
+		}
+	}
+
+	public static void main(String[] args){
+		int threads=Runtime.getRuntime().availableProcessors();
+		List<File> files=new ArrayList<>();
+		for(int a=0;a<args.length;a++){
+			if(args[a].equals("-t")){
+				threads=Integer.parseInt(args[++a]);
+				continue;
+			}
+			files.addAll(list(new File(args[a])));
+		}
+		if(files.isEmpty())
+			files.addAll(list(new File("data/CMT")));
+
+		BatchRunner runner=new BatchRunner(threads, Runtime.getRuntime().maxMemory()/10*8, CLARKE_WRIGHT, "0");
+		System.out.println(Result.header());
+		long start=System.nanoTime();
+		runner.run(files, System.out::println);
+		System.out.println(files.size()+" instances on "+threads+" threads in "+String.format("%.2f", (System.nanoTime()-start)/1e6)+" ms");
+	}
+
+	/**
+	 * @return the XML files of a directory, sorted by name, or the file itself
+	 */
+	private static List<File> list(File file){
+		if(!file.isDirectory())
+			return Arrays.asList(file);
+		File[] files=file.listFiles((dir, name) -> name.endsWith(".xml"));
+		Arrays.sort(files);
+		return Arrays.asList(files);
+	}
+
+}
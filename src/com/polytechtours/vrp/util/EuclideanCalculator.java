@@ -1,7 +1,17 @@
 package com.polytechtours.vrp.util;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.polytechtours.vrp.data.IDistanceMatrix;
+
 /**
- * Implements a simple euclidean distance calculator
+ * Implements a simple euclidean distance calculator.</br>
+ * Full matrices are built row by row from separate x and y arrays ({@link #calc(double[], double[])}): each row is
+ * written contiguously by a branch-free loop over primitive arrays, which the JIT compiles to SIMD instructions, and
+ * rows can be built concurrently on a {@link ForkJoinPool} ({@link #calc(double[], double[], ForkJoinPool)}). Every
+ * path returns exactly the distances of {@link #calc(double, double, double, double)}, since <code>Math.pow(d,2)</code>
+ * is <code>d*d</code> and the distance does not depend on the sign of the differences.
  * @author Jorge E. Mendoza (dev@jorge-mendoza.com)
  * @version %I%, %G%
  * @since Jan 8, 2015
@@ -30,11 +40,118 @@ public class EuclideanCalculator {
 		if(coordinates[0].length!=2)
 			throw new IllegalArgumentException("argument coordinates must be a matrix with 2 columns and an open number of files");
 		
-		double[][] matrix=new double[coordinates.length][coordinates.length];
+		double[] x=new double[coordinates.length];
+		double[] y=new double[coordinates.length];
+		for(int i=0; i< coordinates.length; i++){
+			x[i]=coordinates[i][0];
+			y[i]=coordinates[i][1];
+		}
+		return calc(x, y);
+	}
+
+	/**
+	 * Computes a matrix of Euclidean distances from the coordinates of the points
+	 * @param x the coordinates on the x axis
+	 * @param y the coordinates on the y axis
+	 * @return the distance matrix
+	 */
+	public static double[][] calc(double[] x, double[] y){
+		checkCoordinates(x, y);
+		double[][] matrix=new double[x.length][];
+		fill(x, y, matrix, 0, x.length);
+		return matrix;
+	}
+
+	/**
+	 * Computes a matrix of Euclidean distances from the coordinates of the points, building ranges of rows concurrently.
+	 * The result is identical to {@link #calc(double[], double[])}.
+	 * @param x the coordinates on the x axis
+	 * @param y the coordinates on the y axis
+	 * @param pool the pool running the computation
+	 * @return the distance matrix
+	 */
+	public static double[][] calc(double[] x, double[] y, ForkJoinPool pool){
+		checkCoordinates(x, y);
+		double[][] matrix=new double[x.length][];
+		pool.invoke(new RowTask(x, y, matrix, 0, x.length));
+		return matrix;
+	}
+
+	private static void checkCoordinates(double[] x, double[] y){
+		if(x.length!=y.length)
+			throw new IllegalArgumentException("arguments x and y must have the same length (passed "+x.length+" and "+y.length+")");
+	}
+
+	/**
+	 * Allocates and computes the rows <code>from</code> (inclusive) to <code>to</code> (exclusive) of a distance matrix.
+	 * Both halves of the matrix are computed rather than mirrored, so that rows are written sequentially.
+	 */
+	private static void fill(double[] x, double[] y, double[][] matrix, int from, int to){
+		int n=x.length;
+		for(int i=from; i<to; i++){
+			double[] row=new double[n];
+			double xi=x[i];
+			double yi=y[i];
+			for(int j=0; j<n; j++){
+				double dx=xi-x[j];
+				double dy=yi-y[j];
+				row[j]=Math.sqrt(dx*dx+dy*dy);
+			}
+			matrix[i]=row;
+		}
+	}
+
+	/**
+	 * Builds a range of rows, splitting it while it holds more than {@link #THRESHOLD} distances
+	 */
+	@SuppressWarnings("serial")
+	private static class RowTask extends RecursiveAction {
+		/**
+		 * number of distances under which a range of rows is not split further
+		 */
+		private static final int THRESHOLD=1<<16;
+		private final double[] x;
+		private final double[] y;
+		private final double[][] matrix;
+		private final int from;
+		private final int to;
+
+		RowTask(double[] x, double[] y, double[][] matrix, int from, int to){
+			this.x=x;
+			this.y=y;
+			this.matrix=matrix;
+			this.from=from;
+			this.to=to;
+		}
+
+		@Override
+		protected void compute(){
+			if(to-from<2 || (long)(to-from)*x.length<=THRESHOLD){
+				fill(x, y, matrix, from, to);
+				return;
+			}
+			int mid=(from+to)>>>1;
+			invokeAll(new RowTask(x, y, matrix, from, mid), new RowTask(x, y, matrix, mid, to));
+		}
+	}
+
+	/**
+	 * Fills a distance matrix with the Euclidean distances between every pair of points, without building an intermediate array
+	 * @param coordinates the coordinates
+	 * @param matrix the matrix to fill, of size <code>coordinates.length</code>
+	 * @return the filled matrix
+	 */
+	public static <M extends IDistanceMatrix> M calc(double[][] coordinates, M matrix){
+		if(coordinates[0].length!=2)
+			throw new IllegalArgumentException("argument coordinates must be a matrix with 2 columns and an open number of files");
+		if(matrix.size()!=coordinates.length)
+			throw new IllegalArgumentException("argument matrix must have size "+coordinates.length+" (passed matrix has size "+matrix.size()+")");
+		
 		for(int i=0; i< coordinates.length; i++){
 			for(int j=i+1; j<coordinates.length;j++){
-				matrix[i][j]=calc(coordinates[i][0],coordinates[i][1],coordinates[j][0],coordinates[j][1]);
-				matrix[j][i]=matrix[i][j];
+				double d=calc(coordinates[i][0],coordinates[i][1],coordinates[j][0],coordinates[j][1]);
+				matrix.setDistance(i, j, d);
+				matrix.setDistance(j, i, d);
 			}
 		}
 		return matrix;
@@ -0,0 +1,128 @@
+package com.polytechtours.vrp.util;
+
+import java.util.Arrays;
+
+/**
+ * Computes the k nearest neighbours of every point of a set of coordinates. Points are bucketed in a uniform grid and
+ * each query visits the grid cells ring by ring around the cell of the point, stopping as soon as no closer point can
+ * be found. On reasonably spread instances a query therefore costs O(k) cells instead of O(n) points.
+ * @author Boyang Wang
+ * @version %I%, %G%
+ * @since Mars 23, 2018
+ *
+ */
+public class NearestNeighbors {
+
+	/**
+	 * Computes the nearest neighbours of every point
+	 * @param coordinates the coordinates, one row per point with the x and y coordinates
+	 * @param k the number of neighbours per point
+	 * @return for each point, the indices of its <code>min(k, n-1)</code> nearest other points by increasing distance
+	 * (ties broken by increasing index)
+	 */
+	public static int[][] calc(double[][] coordinates, int k){
+		int n = coordinates.length;
+		if(k < 0)
+			throw new IllegalArgumentException("argument k must be positive (passed " + k + ")");
+		k = Math.min(k, n - 1);
+		int[][] neighbors = new int[n][];
+		if(k <= 0){
+			for(int i=0; i<n; i++)
+				neighbors[i] = new int[0];
+			return neighbors;
+		}
+
+		// build the grid, about two points per cell
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for(int i=0; i<n; i++){
+			minX = Math.min(minX, coordinates[i][0]);
+			maxX = Math.max(maxX, coordinates[i][0]);
+			minY = Math.min(minY, coordinates[i][1]);
+			maxY = Math.max(maxY, coordinates[i][1]);
+		}
+		int g = Math.max(1, (int) Math.sqrt(n / 2.0));
+		double cell = Math.max(maxX - minX, maxY - minY) / g;
+		if(cell == 0)
+			cell = 1;
+		int[] cellOf = new int[n];
+		int[] start = new int[g * g + 1];
+		for(int i=0; i<n; i++){
+			cellOf[i] = cellIndex(coordinates[i][1], minY, cell, g) * g + cellIndex(coordinates[i][0], minX, cell, g);
+			start[cellOf[i] + 1]++;
+		}
+		for(int c=0; c<g * g; c++)
+			start[c + 1] += start[c];
+		int[] points = new int[n];
+		int[] fill = start.clone();
+		for(int i=0; i<n; i++)
+			points[fill[cellOf[i]]++] = i;
+
+		double[] best = new double[k];
+		int[] bestId = new int[k];
+		for(int p=0; p<n; p++){
+			int found = 0;
+			int cx = cellOf[p] % g;
+			int cy = cellOf[p] / g;
+			for(int r=0; r<=g; r++){
+				for(int y=cy - r; y<=cy + r; y++){
+					if(y < 0 || y >= g)
+						continue;
+					// inner rows of the ring only hold its two side cells
+					int step = (y == cy - r || y == cy + r) ? 1 : 2 * r;
+					for(int x=cx - r; x<=cx + r; x+=Math.max(step, 1)){
+						if(x < 0 || x >= g)
+							continue;
+						int c = y * g + x;
+						for(int q=start[c]; q<start[c + 1]; q++){
+							int o = points[q];
+							if(o == p)
+								continue;
+							double dx = coordinates[p][0] - coordinates[o][0];
+							double dy = coordinates[p][1] - coordinates[o][1];
+							found = offer(best, bestId, found, dx * dx + dy * dy, o);
+						}
+					}
+				}
+				// cells beyond ring r are at least r cells away from the point; a point at exactly that distance may still
+				// win a tie by its smaller index, so the search only stops when the k-th distance is strictly shorter
+				if(found == k && best[k - 1] < (r * cell) * (r * cell))
+					break;
+			}
+			neighbors[p] = Arrays.copyOf(bestId, found);
+		}
+		return neighbors;
+	}
+
+	/**
+	 * @return the grid index of a coordinate
+	 */
+	private static int cellIndex(double value, double min, double cell, int g){
+		return Math.min(g - 1, (int) ((value - min) / cell));
+	}
+
+	/**
+	 * Inserts a candidate into the sorted list of the best candidates found so far
+	 * @param best the squared distances of the best candidates, in increasing order
+	 * @param bestId the indices of the best candidates
+	 * @param found the number of candidates in the list
+	 * @param distance the squared distance of the candidate
+	 * @param id the index of the candidate
+	 * @return the new number of candidates in the list
+	 */
+	private static int offer(double[] best, int[] bestId, int found, double distance, int id){
+		int k = best.length;
+		if(k == 0 || (found == k && (distance > best[k - 1] || (distance == best[k - 1] && id > bestId[k - 1]))))
+			return found;
+		int i = found == k ? k - 1 : found;
+		while(i > 0 && (best[i - 1] > distance || (best[i - 1] == distance && bestId[i - 1] > id))){
+			best[i] = best[i - 1];
+			bestId[i] = bestId[i - 1];
+			i--;
+		}
+		best[i] = distance;
+		bestId[i] = id;
+		return found == k ? k : found + 1;
+	}
+
+}